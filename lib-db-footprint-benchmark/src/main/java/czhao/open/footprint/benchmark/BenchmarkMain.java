@@ -0,0 +1,27 @@
+package czhao.open.footprint.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 性能基准入口
+ *
+ * <p>在JMH命令行参数的基础上总是开启GC分析(等同于"-prof gc")，输出每次操作的内存分配量，便于发现解析与选择路径上的分配回归。</p>
+ * <p>java -jar target/benchmarks.jar [JMH参数]，例如只执行脚本阅读器基准：java -jar target/benchmarks.jar ScriptReader</p>
+ *
+ * @author zhaochun
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
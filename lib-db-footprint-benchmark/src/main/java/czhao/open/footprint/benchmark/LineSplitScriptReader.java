@@ -0,0 +1,52 @@
+package czhao.open.footprint.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按行切分SQL语句的旧版ScriptReader，作为单次扫描词法切分的对比基准
+ *
+ * <p>逐行去除首尾空白，跳过空行与"--"开头的注释行，以";"结尾的行结束一条语句；不识别引号、块注释与DELIMITER。</p>
+ *
+ * @author zhaochun
+ */
+class LineSplitScriptReader {
+    private final InputStream inputStream;
+
+    LineSplitScriptReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    List<String> readSqls() {
+        List<String> sqls = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(this.inputStream, StandardCharsets.UTF_8))) {
+            StringBuilder sqlBuilder = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                String lineStrip = line.strip();
+                if (lineStrip.isBlank() || lineStrip.startsWith("--")) {
+                    continue;
+                }
+                if (lineStrip.endsWith(";")) {
+                    String tmpLine = lineStrip.substring(0, lineStrip.length() - 1);
+                    sqlBuilder.append(tmpLine).append(" \n");
+                    sqls.add(sqlBuilder.toString().strip());
+                    sqlBuilder = new StringBuilder();
+                } else {
+                    sqlBuilder.append(lineStrip).append(" \n");
+                }
+            }
+            if (sqlBuilder.length() > 0) {
+                sqls.add(sqlBuilder.toString().strip());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sqls;
+    }
+}
@@ -0,0 +1,28 @@
+package czhao.open.footprint.benchmark;
+
+import czhao.open.footprint.utils.ScriptSource;
+
+import java.io.InputStream;
+
+/**
+ * 只有文件名的脚本来源，用于只解析文件名、不读取内容的基准
+ *
+ * @author zhaochun
+ */
+class NameOnlyScriptSource implements ScriptSource {
+    private final String fileName;
+
+    NameOnlyScriptSource(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+        throw new UnsupportedOperationException(fileName);
+    }
+}
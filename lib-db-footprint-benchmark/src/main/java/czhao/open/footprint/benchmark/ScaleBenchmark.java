@@ -0,0 +1,173 @@
+package czhao.open.footprint.benchmark;
+
+import czhao.open.footprint.versionctl.DbVersionCtl;
+import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics.Phase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+/**
+ * 端到端规模基准
+ *
+ * <p>在MySQL兼容模式的H2内存数据库上执行完整的DbVersionCtl.doDBVersionControl流程，不需要MySQL服务。
+ * 先生成合成脚本目录(大量业务空间与脚本，外加若干大数据脚本)，再依次执行以下场景并输出各阶段耗时：</p>
+ * <p>1. DEPLOY_INIT : 空数据库，执行前一半版本的脚本与大数据脚本；</p>
+ * <p>2. DEPLOY_INCREASE : 在1的基础上加入后一半版本的脚本；</p>
+ * <p>3. DEPLOY_INCREASE(无变化) : 再次执行2，没有需要执行的脚本；</p>
+ * <p>4. BASELINE_INIT : 已有业务表但没有版本控制表的新数据库，以前一半版本为基线，执行后一半版本的脚本。</p>
+ * <p>java -cp target/benchmarks.jar czhao.open.footprint.benchmark.ScaleBenchmark spaces=40 scripts=100 largeFiles=3 largeMb=20 batchSize=1000 parallel=n</p>
+ *
+ * @author zhaochun
+ */
+public class ScaleBenchmark {
+    private static final String URL_PREFIX = "jdbc:h2:mem:";
+    private static final String URL_OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String BULK_SPACE = "bulk";
+
+    private final int spaces;
+    private final int scriptsPerSpace;
+    private final int largeFiles;
+    private final int largeMb;
+    private final int batchSize;
+    private final boolean parallel;
+
+    public ScaleBenchmark(Map<String, String> options) {
+        this.spaces = Integer.parseInt(options.getOrDefault("spaces", "40"));
+        this.scriptsPerSpace = Integer.parseInt(options.getOrDefault("scripts", "100"));
+        this.largeFiles = Integer.parseInt(options.getOrDefault("largeFiles", "3"));
+        this.largeMb = Integer.parseInt(options.getOrDefault("largeMb", "20"));
+        this.batchSize = Integer.parseInt(options.getOrDefault("batchSize", "1000"));
+        this.parallel = "y".equalsIgnoreCase(options.getOrDefault("parallel", "n"));
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Usage: ScaleBenchmark [spaces=N] [scripts=N] [largeFiles=N] [largeMb=N] [batchSize=N] [parallel=y|n]");
+            }
+            options.put(kv[0], kv[1]);
+        }
+        new ScaleBenchmark(options).run();
+    }
+
+    private void run() throws IOException, SQLException {
+        Path root = Files.createTempDirectory("footprint_scale");
+        try {
+            Path part1 = Files.createDirectory(root.resolve("part1"));
+            Path part2 = Files.createDirectory(root.resolve("part2"));
+            long genStart = System.nanoTime();
+            int half = scriptsPerSpace / 2;
+            for (int s = 0; s < spaces; s++) {
+                String bs = String.format("bs%03d", s);
+                for (int v = 1; v <= scriptsPerSpace; v++) {
+                    writeSmallScript(v <= half ? part1 : part2, bs, v);
+                }
+            }
+            for (int f = 1; f <= largeFiles; f++) {
+                writeLargeScript(part1, f);
+            }
+            System.out.printf("corpus: %d business spaces x %d scripts + %d x %d MB data scripts, generated in %d ms%n",
+                    spaces, scriptsPerSpace, largeFiles, largeMb, (System.nanoTime() - genStart) / 1_000_000);
+            System.out.printf("options: batchSize=%d, parallel=%s, phase times in ms%n%n", batchSize, parallel ? "y" : "n");
+            System.out.printf("%-26s %-16s %8s %10s %10s %10s %10s %10s%n",
+                    "scenario", "mode", "scripts", "discovery", "detection", "lookup", "execution", "total");
+
+            String deployDb = "scale_deploy";
+            report("DEPLOY_INIT", run(deployDb, part1.toString(), null));
+            report("DEPLOY_INCREASE", run(deployDb, part1 + "," + part2, null));
+            report("DEPLOY_INCREASE(no change)", run(deployDb, part1 + "," + part2, null));
+
+            String baselineDb = "scale_baseline";
+            try (Connection conn = DriverManager.getConnection(URL_PREFIX + baselineDb + URL_OPTIONS, "sa", "");
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE legacy_t (id INT PRIMARY KEY)");
+            }
+            StringJoiner baseline = new StringJoiner(",");
+            for (int s = 0; s < spaces; s++) {
+                baseline.add(String.format("bs%03d_V1.0.%d", s, half));
+            }
+            if (largeFiles > 0) {
+                baseline.add(BULK_SPACE + "_V1.0." + largeFiles);
+            }
+            report("BASELINE_INIT", run(baselineDb, part1 + "," + part2, baseline.toString()));
+        } finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private DbVersionCtlStatistics run(String db, String scriptDirs, String baseline) {
+        DbVersionCtlProps props = new DbVersionCtlProps();
+        props.setScriptResourceMode(DbVersionCtlProps.ScriptResourceMode.FILESYSTEM);
+        props.setScriptDirs(scriptDirs);
+        props.setBaselineBusinessSpaceAndVersions(baseline);
+        props.setDriverClassName("org.h2.Driver");
+        props.setUrl(URL_PREFIX + db + URL_OPTIONS);
+        props.setUsername("sa");
+        props.setPassword("");
+        props.setBatchSize(batchSize);
+        if (parallel) {
+            props.setParallelBusinessSpace("y");
+        }
+        DbVersionCtl dbVersionCtl = new DbVersionCtl(props);
+        dbVersionCtl.doDBVersionControl();
+        return dbVersionCtl.getLastStatistics();
+    }
+
+    private void report(String scenario, DbVersionCtlStatistics statistics) {
+        System.out.printf("%-26s %-16s %8d %10d %10d %10d %10d %10d%n", scenario, statistics.getOperationMode(),
+                statistics.getExecutedScripts(),
+                statistics.getPhaseMillis(Phase.DISCOVERY),
+                statistics.getPhaseMillis(Phase.MODE_DETECTION),
+                statistics.getPhaseMillis(Phase.VERSION_LOOKUP),
+                statistics.getPhaseMillis(Phase.EXECUTION),
+                statistics.getTotalMillis());
+    }
+
+    private static void writeSmallScript(Path dir, String bs, int v) throws IOException {
+        String table = bs + "_t" + v;
+        StringBuilder sb = new StringBuilder();
+        sb.append("-- ").append(bs).append(" 版本 ").append(v).append('\n');
+        sb.append("CREATE TABLE IF NOT EXISTS `").append(table).append("` (\n")
+                .append("  `id` INT NOT NULL,\n")
+                .append("  `name` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '名称',\n")
+                .append("  PRIMARY KEY (`id`)\n")
+                .append(");\n");
+        for (int i = 0; i < 5; i++) {
+            sb.append("INSERT INTO `").append(table).append("` (`id`, `name`) VALUES (").append(i).append(", 'row-").append(i).append("');\n");
+        }
+        Files.writeString(dir.resolve(bs + "_V1.0." + v + "_s" + v + ".sql"), sb, StandardCharsets.UTF_8);
+    }
+
+    private void writeLargeScript(Path dir, int f) throws IOException {
+        String table = BULK_SPACE + "_data" + f;
+        long targetBytes = (long) largeMb * 1024 * 1024;
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(BULK_SPACE + "_V1.0." + f + "_data" + f + ".sql"), StandardCharsets.UTF_8)) {
+            String ddl = "CREATE TABLE `" + table + "` (`id` INT NOT NULL, `payload` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`));\n";
+            writer.write(ddl);
+            long written = ddl.length();
+            for (int i = 0; written < targetBytes; i++) {
+                String line = "INSERT INTO `" + table + "` (`id`, `payload`) VALUES (" + i + ", 'payload-" + i + "-abcdefghijklmnopqrstuvwxyz-0123456789');\n";
+                writer.write(line);
+                written += line.length();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package czhao.open.footprint.benchmark;
+
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL脚本文件名解析基准
+ *
+ * <p>测量根据文件名构造SQLScriptEntity(正则匹配并解析业务空间与版本号)的耗时与内存分配，
+ * 分别覆盖三段版本号(需要先尝试默认格式)与四段版本号(默认格式匹配失败后再匹配扩展格式)两种文件名。</p>
+ *
+ * @author zhaochun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptNameParseBenchmark {
+    private static final int NAMES = 1024;
+
+    private NameOnlyScriptSource[] defaultNames;
+    private NameOnlyScriptSource[] extendNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        defaultNames = new NameOnlyScriptSource[NAMES];
+        extendNames = new NameOnlyScriptSource[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            defaultNames[i] = new NameOnlyScriptSource("raven" + (i % 16) + "_V" + (i / 100) + "." + (i % 100) + "." + i + "_add_table" + i + ".sql");
+            extendNames[i] = new NameOnlyScriptSource("raven" + (i % 16) + "_V" + (i / 100) + "." + (i % 100) + "." + i + "." + (i % 7) + "_add_table" + i + ".sql");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void parseDefaultName(Blackhole bh) {
+        for (NameOnlyScriptSource name : defaultNames) {
+            bh.consume(new SQLScriptEntity(name));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void parseExtendName(Blackhole bh) {
+        for (NameOnlyScriptSource name : extendNames) {
+            bh.consume(new SQLScriptEntity(name));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package czhao.open.footprint.benchmark;
+
+import czhao.open.footprint.utils.ScriptReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL脚本阅读器基准
+ *
+ * <p>对不同形态、不同大小的合成脚本测量ScriptReader.readSqls的耗时与内存分配，分别通过输入流(字符切分)与文件路径(大文件内存映射)读取。</p>
+ * <p>readSqlsByLine是按行切分的旧实现({@link LineSplitScriptReader})读取同一脚本的对比基准。旧实现不识别DELIMITER与引号内的分号，
+ * PROCEDURE与COMMENTED形态切分出的语句与新实现不同，只用于对比吞吐量。</p>
+ *
+ * @author zhaochun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptReaderBenchmark {
+    /**
+     * 脚本形态：
+     * DML - 单行INSERT；DDL - 多行建表语句；PROCEDURE - DELIMITER包围的存储过程；COMMENTED - 大量行注释、块注释与引号内的分号
+     */
+    @Param({"DML", "DDL", "PROCEDURE", "COMMENTED"})
+    private String shape;
+
+    /**
+     * 脚本中的语句数
+     */
+    @Param({"100", "10000"})
+    private int statements;
+
+    private byte[] script;
+    private Path scriptFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.script = makeScript(shape, statements).getBytes(StandardCharsets.UTF_8);
+        this.scriptFile = Files.createTempFile("bench_V1.0.0_" + shape.toLowerCase(), ".sql");
+        Files.write(this.scriptFile, this.script);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.scriptFile);
+    }
+
+    @Benchmark
+    public List<String> readSqlsFromStream() {
+        return new ScriptReader(new ByteArrayInputStream(script)).readSqls();
+    }
+
+    @Benchmark
+    public List<String> readSqlsFromFile() {
+        return new ScriptReader(scriptFile).readSqls();
+    }
+
+    @Benchmark
+    public List<String> readSqlsByLine() {
+        return new LineSplitScriptReader(new ByteArrayInputStream(script)).readSqls();
+    }
+
+    static String makeScript(String shape, int statements) {
+        StringBuilder sb = new StringBuilder(statements * 128);
+        for (int i = 0; i < statements; i++) {
+            switch (shape) {
+                case "DML" -> sb.append("INSERT INTO `bench_t` (`id`, `name`) VALUES (").append(i)
+                        .append(", 'name-").append(i).append(" 中文内容');\n");
+                case "DDL" -> sb.append("CREATE TABLE IF NOT EXISTS `bench_t").append(i).append("` (\n")
+                        .append("  `id` INT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT 'ID',\n")
+                        .append("  `name` VARCHAR(255) NOT NULL DEFAULT '' COMMENT '名称',\n")
+                        .append("  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,\n")
+                        .append("  PRIMARY KEY (`id`),\n")
+                        .append("  INDEX `idx_name` (`name`)\n")
+                        .append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT = '基准表';\n\n");
+                case "PROCEDURE" -> sb.append("DELIMITER //\n")
+                        .append("CREATE PROCEDURE `bench_p").append(i).append("`()\n")
+                        .append("BEGIN\n")
+                        .append("  DECLARE v INT DEFAULT 0;\n")
+                        .append("  SET v = v + 1;\n")
+                        .append("  SELECT v;\n")
+                        .append("END//\n")
+                        .append("DELIMITER ;\n");
+                case "COMMENTED" -> sb.append("-- 第").append(i).append("条语句\n")
+                        .append("/* 块注释; 不结束语句 */\n")
+                        .append("UPDATE `bench_t` SET `name` = 'a;b', `memo` = \"c;d\" -- 行尾注释\n")
+                        .append(" WHERE `id` = ").append(i).append(";\n");
+                default -> throw new IllegalArgumentException(shape);
+            }
+        }
+        return sb.toString();
+    }
+}
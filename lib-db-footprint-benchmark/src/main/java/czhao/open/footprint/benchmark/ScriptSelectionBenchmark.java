@@ -0,0 +1,76 @@
+package czhao.open.footprint.benchmark;
+
+import czhao.open.footprint.versionctl.SQLScriptCatalog;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 增量脚本选择基准
+ *
+ * <p>对比两种选择方式：selectIncrease按checkNeed过滤出高于当前版本的脚本，再按compareTo排序；
+ * selectFromCatalog与IncreaseVersionTask相同，在SQLScriptCatalog中二分查找版本键，buildCatalog为构建目录的一次性开销。
+ * 脚本目录乱序排列，当前版本位于版本序列的中间，即约一半的脚本需要执行。</p>
+ *
+ * @author zhaochun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptSelectionBenchmark {
+    /**
+     * 一个业务空间中的脚本数
+     */
+    @Param({"1000", "100000"})
+    private int catalogSize;
+
+    private List<SQLScriptEntity> catalog;
+    private SQLScriptEntity current;
+    private SQLScriptCatalog scriptCatalog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            catalog.add(new SQLScriptEntity(new NameOnlyScriptSource(
+                    "raven_V" + (i / 10000) + "." + (i / 100 % 100) + "." + (i % 100) + "." + (i % 3) + "_script" + i + ".sql")));
+        }
+        List<SQLScriptEntity> sorted = new ArrayList<>(catalog);
+        Collections.sort(sorted);
+        current = sorted.get(catalogSize / 2);
+        Collections.shuffle(catalog, new Random(42));
+        scriptCatalog = SQLScriptCatalog.of(catalog);
+    }
+
+    @Benchmark
+    public List<SQLScriptEntity> selectIncrease() {
+        int major = current.getMajorVersion();
+        int minor = current.getMinorVersion();
+        int patch = current.getPatchVersion();
+        int extend = current.getExtendVersion();
+        return catalog.stream()
+                .filter(sqlScriptEntity -> sqlScriptEntity.checkNeed(major, minor, patch, extend))
+                .sorted(SQLScriptEntity::compareTo)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public SQLScriptCatalog buildCatalog() {
+        return SQLScriptCatalog.of(catalog);
+    }
+
+    @Benchmark
+    public List<SQLScriptEntity> selectFromCatalog() {
+        return scriptCatalog.pending(current.getBusinessSpace(), current.getMajorVersion(), current.getMinorVersion(),
+                current.getPatchVersion(), current.getExtendVersion());
+    }
+}
@@ -0,0 +1,67 @@
+package czhao.open.footprint.utils;
+
+/**
+ * 自适应批次大小
+ *
+ * <p>根据已执行批次观测到的单条语句平均耗时，调整下一批次的大小，使每个批次的耗时接近目标耗时：</p>
+ * <p>网络往返占比高(单条语句很快)时增大批次，单条语句较慢时缩小批次，避免单个批次长时间占用连接。</p>
+ *
+ * @author zhaochun
+ */
+public class AdaptiveBatchSize {
+    /**
+     * 批次大小上限
+     */
+    public static final int MAX_BATCH_SIZE = 10000;
+
+    /**
+     * 单个批次的目标耗时，200毫秒
+     */
+    private static final long TARGET_BATCH_NANOS = 200_000_000L;
+
+    /**
+     * 是否根据观测到的耗时调整批次大小
+     */
+    private final boolean adaptive;
+
+    /**
+     * 当前批次大小
+     */
+    private int current;
+
+    /**
+     * AdaptiveBatchSize构造方法
+     *
+     * @param initial  初始批次大小
+     * @param adaptive 是否根据观测到的耗时调整批次大小
+     */
+    public AdaptiveBatchSize(int initial, boolean adaptive) {
+        this.current = Math.max(1, Math.min(initial, MAX_BATCH_SIZE));
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * 获取当前批次大小
+     *
+     * @return 当前批次大小
+     */
+    public int current() {
+        return current;
+    }
+
+    /**
+     * 记录一个批次的执行耗时，并调整批次大小
+     *
+     * @param statements 该批次的语句条数
+     * @param nanos      该批次的执行耗时(纳秒)
+     */
+    public void observe(int statements, long nanos) {
+        if (!adaptive || statements <= 0) {
+            return;
+        }
+        long perStatement = Math.max(1L, nanos / statements);
+        long ideal = Math.max(1L, Math.min(TARGET_BATCH_NANOS / perStatement, MAX_BATCH_SIZE));
+        // 取当前值与理想值的均值，平滑单次抖动
+        this.current = (int) Math.max(1L, (this.current + ideal) / 2);
+    }
+}
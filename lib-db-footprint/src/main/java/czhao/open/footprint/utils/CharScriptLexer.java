@@ -0,0 +1,119 @@
+package czhao.open.footprint.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 以字符为扫描单位的SQL脚本词法切分器
+ *
+ * @author zhaochun
+ */
+class CharScriptLexer extends ScriptLexer {
+    private static final int BUFFER_SIZE = 8192;
+    // 语句缓冲区容量超过该值时，输出语句后重新分配，避免个别超大语句长期占用内存
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean first = true;
+
+    // 语句缓冲区
+    private char[] statement = new char[256];
+    private int statementLength = 0;
+
+    /**
+     * CharScriptLexer构造方法
+     *
+     * @param reader 脚本字符输入流，无需额外包装BufferedReader
+     */
+    CharScriptLexer(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    protected int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+            if (first) {
+                first = false;
+                // 跳过UTF-8 BOM
+                if (buffer[0] == '\uFEFF') {
+                    position = 1;
+                    return read();
+                }
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    protected void append(int unit) {
+        if (statementLength == statement.length) {
+            statement = Arrays.copyOf(statement, statementLength << 1);
+        }
+        statement[statementLength++] = (char) unit;
+    }
+
+    @Override
+    protected void appendPlainRun(boolean[] stops) {
+        int start = position;
+        int p = start;
+        while (p < limit) {
+            char ch = buffer[p];
+            if (ch < 128 && stops[ch]) {
+                break;
+            }
+            p++;
+        }
+        int n = p - start;
+        if (n > 0) {
+            if (statementLength + n > statement.length) {
+                statement = Arrays.copyOf(statement, Math.max(statementLength + n, statement.length << 1));
+            }
+            System.arraycopy(buffer, start, statement, statementLength, n);
+            statementLength += n;
+            position = p;
+        }
+    }
+
+    @Override
+    protected int length() {
+        return statementLength;
+    }
+
+    @Override
+    protected int unitAt(int index) {
+        return statement[index];
+    }
+
+    @Override
+    protected void truncate(int length) {
+        if (length == 0 && statement.length > MAX_RETAINED_CAPACITY) {
+            statement = new char[256];
+        }
+        statementLength = length;
+    }
+
+    @Override
+    protected String toText(int start, int end) {
+        return new String(statement, start, end - start);
+    }
+
+    @Override
+    protected int[] toUnits(String text) {
+        return text.chars().toArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
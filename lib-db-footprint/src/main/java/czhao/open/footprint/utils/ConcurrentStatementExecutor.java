@@ -0,0 +1,350 @@
+package czhao.open.footprint.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按表依赖关系并发执行SQL语句
+ *
+ * <p>按脚本顺序读取SQL语句，通过{@link SqlUtil#touchedTables(String)}取得每条语句读写的表：</p>
+ * <p>1. 读写相同表的语句按脚本中的顺序依次执行，读写不同表的语句在多个工作连接中并发执行；</p>
+ * <p>2. 通过外键关联的表视为相关的表，读写其中任一张表的语句都按顺序执行。外键关系包括数据库中已有的外键
+ * (开始执行前从information_schema一次加载，不支持时通过JDBC元数据按表加载)与同一脚本中CREATE TABLE/ALTER TABLE的REFERENCES；
+ * 无法取得已有的外键关系时，DML语句都按第3条单独执行；</p>
+ * <p>3. 不能确定读写哪些表的语句(如CREATE VIEW、CALL、INSERT ... SELECT)等待之前的语句全部执行完毕后，在主连接中单独执行；</p>
+ * <p>4. 会话语句(见{@link SqlUtil#isSessionStatement(String)})只对执行它的连接生效，
+ * 因此遇到会话语句时等待之前的语句全部执行完毕，之后脚本剩余的语句全部在主连接中按顺序执行。</p>
+ * <p>第一条并发执行的语句之前在主线程中从连接池一次获取[workers]个工作连接，之后工作线程只使用这些连接，
+ * 不会在持有空闲连接的同时等待连接池；每条语句自动提交。某条语句失败后不再开始位置在其之后的语句，等待已开始的语句结束后，
+ * 抛出脚本中位置最靠前的失败语句的异常。</p>
+ * <p>工作线程中的观察者回调先放入队列，由主线程按完成顺序转发，因此观察者只在主线程中被调用，
+ * 可以使用主连接(如写入语句日志)；语句完成的顺序不再是脚本中的顺序。</p>
+ *
+ * @author zhaochun
+ */
+class ConcurrentStatementExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentStatementExecutor.class);
+    // 每个工作连接最多排队的语句数，避免大脚本的全部语句一次读入内存
+    private static final int MAX_PENDING_PER_WORKER = 64;
+    // 当前库中已有的外键关系(MySQL)
+    private static final String FOREIGN_KEY_SELECT_SQL = "SELECT TABLE_NAME, REFERENCED_TABLE_NAME FROM information_schema.KEY_COLUMN_USAGE"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL";
+
+    private final JdbcUtil jdbcUtil;
+    private final Connection connection;
+    private final int workers;
+    private final StatementObserver observer;
+    // 工作线程使用的观察者，回调由主线程转发
+    private final DeferredObserver workerObserver;
+
+    // 每张表最后一条语句的执行结果
+    private final Map<String, CompletableFuture<Void>> lastByTable = new HashMap<>();
+    // 通过外键关联的表
+    private final Map<String, Set<String>> relatedTables = new HashMap<>();
+    // 已通过JDBC元数据加载外键关系的表，为null时不需要按表加载(已从information_schema一次加载)
+    private Set<String> metaDataLoadedTables;
+    // 无法取得数据库中已有的外键关系
+    private boolean foreignKeysUnknown = false;
+    // 尚未结束的语句
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    // 已失败语句中位置最靠前的一条的异常及其序号
+    private volatile Throwable failure;
+    private long failureSeq = Long.MAX_VALUE;
+    private long seq = 0;
+    // 空闲的工作连接
+    private final BlockingQueue<Connection> idleConnections;
+    private final List<Connection> workerConnections = new ArrayList<>();
+    private final Semaphore pendingPermits;
+
+    /**
+     * ConcurrentStatementExecutor构造方法
+     *
+     * @param jdbcUtil   JDBC操作工具，工作连接从其连接池获取
+     * @param connection 主连接，执行不能并发的语句
+     * @param workers    工作连接数
+     * @param observer   SQL语句执行观察者
+     */
+    ConcurrentStatementExecutor(JdbcUtil jdbcUtil, Connection connection, int workers, StatementObserver observer) {
+        this.jdbcUtil = jdbcUtil;
+        this.connection = connection;
+        this.workers = workers;
+        this.observer = observer;
+        this.workerObserver = new DeferredObserver(observer);
+        this.idleConnections = new ArrayBlockingQueue<>(workers);
+        this.pendingPermits = new Semaphore(workers * MAX_PENDING_PER_WORKER);
+    }
+
+    void execute(Iterable<String> sqls) {
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers, r -> {
+            Thread thread = new Thread(r, "footprint-stmt-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int concurrent = 0;
+        int exclusive = 0;
+        loadForeignKeys();
+        try {
+            boolean sequential = false;
+            for (String sql : sqls) {
+                this.workerObserver.drain();
+                if (sequential) {
+                    this.jdbcUtil.executeObserved(this.connection, sql, this.observer);
+                    exclusive++;
+                    continue;
+                }
+                Set<String> tables = SqlUtil.touchedTables(sql);
+                if (tables != null) {
+                    loadForeignKeysFromMetaData(tables);
+                    if (this.foreignKeysUnknown && SqlUtil.isDml(sql)) {
+                        tables = null;
+                    }
+                }
+                if (tables == null) {
+                    awaitInFlight();
+                    if (SqlUtil.isSessionStatement(sql)) {
+                        logger.info("会话语句之后的语句在主连接中按顺序执行: {}", SqlUtil.abbreviate(sql, 100));
+                        sequential = true;
+                    }
+                    this.jdbcUtil.executeObserved(this.connection, sql, this.observer);
+                    this.lastByTable.clear();
+                    exclusive++;
+                    continue;
+                }
+                if (this.failure != null) {
+                    break;
+                }
+                openWorkerConnections();
+                submit(sql, ++seq, tables, executor);
+                concurrent++;
+            }
+            awaitInFlight();
+        } finally {
+            executor.shutdownNow();
+            closeWorkerConnections();
+        }
+        logger.debug("ConcurrentStatementExecutor concurrent: {} , exclusive: {}", concurrent, exclusive);
+    }
+
+    private void submit(String sql, long sqlSeq, Set<String> tables, ExecutorService executor) {
+        Set<String> dependTables = new HashSet<>(tables);
+        for (String table : tables) {
+            dependTables.addAll(this.relatedTables.getOrDefault(table, Set.of()));
+        }
+        if (tables.size() > 1 && !SqlUtil.isDml(sql)) {
+            // 外键关联的表，之后读写其中任一张表的语句都要按顺序执行
+            relate(tables);
+        }
+        CompletableFuture<?>[] dependencies = dependTables.stream()
+                .map(this.lastByTable::get)
+                .filter(Objects::nonNull)
+                .toArray(CompletableFuture<?>[]::new);
+        try {
+            this.pendingPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> executeOnWorker(sql, sqlSeq), executor);
+        this.inFlight.add(future);
+        future.whenComplete((v, e) -> {
+            // 先记录异常再移除，等待结束时即可看到异常
+            if (e != null) {
+                recordFailure(sqlSeq, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+            this.inFlight.remove(future);
+            this.pendingPermits.release();
+        });
+        for (String table : dependTables) {
+            this.lastByTable.put(table, future);
+        }
+    }
+
+    private void relate(Collection<String> tables) {
+        for (String table : tables) {
+            this.relatedTables.computeIfAbsent(table, t -> new HashSet<>()).addAll(tables);
+        }
+    }
+
+    /**
+     * 从information_schema一次加载当前库中已有的外键关系，不支持时改为通过JDBC元数据按表加载
+     */
+    private void loadForeignKeys() {
+        int count = 0;
+        try (Statement statement = this.connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(FOREIGN_KEY_SELECT_SQL)) {
+            while (resultSet.next()) {
+                relate(List.of(resultSet.getString(1).toLowerCase(Locale.ROOT), resultSet.getString(2).toLowerCase(Locale.ROOT)));
+                count++;
+            }
+        } catch (SQLException e) {
+            logger.debug("information_schema外键关系查询失败, 改为通过JDBC元数据按表加载. {}", e.getMessage());
+            this.metaDataLoadedTables = new HashSet<>();
+            return;
+        }
+        logger.debug("ConcurrentStatementExecutor foreign keys: {}", count);
+    }
+
+    /**
+     * 通过JDBC元数据加载表的外键关系(引用的表与被引用的表)，每张表只加载一次
+     */
+    private void loadForeignKeysFromMetaData(Set<String> tables) {
+        if (this.metaDataLoadedTables == null || this.foreignKeysUnknown) {
+            return;
+        }
+        try {
+            DatabaseMetaData metaData = null;
+            for (String table : tables) {
+                if (!this.metaDataLoadedTables.add(table)) {
+                    continue;
+                }
+                if (metaData == null) {
+                    metaData = this.connection.getMetaData();
+                }
+                String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+                // 连接池的连接包装不一定支持getSchema，不按schema过滤
+                String catalog = this.connection.getCatalog();
+                try (ResultSet resultSet = metaData.getImportedKeys(catalog, null, name)) {
+                    relateForeignKeys(resultSet);
+                }
+                try (ResultSet resultSet = metaData.getExportedKeys(catalog, null, name)) {
+                    relateForeignKeys(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("无法取得已有的外键关系, DML语句改为单独执行. {}", e.getMessage());
+            this.foreignKeysUnknown = true;
+        }
+    }
+
+    private void relateForeignKeys(ResultSet resultSet) throws SQLException {
+        while (resultSet.next()) {
+            relate(List.of(resultSet.getString("PKTABLE_NAME").toLowerCase(Locale.ROOT),
+                    resultSet.getString("FKTABLE_NAME").toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    private synchronized boolean failedBefore(long sqlSeq) {
+        return this.failureSeq < sqlSeq;
+    }
+
+    private synchronized void recordFailure(long sqlSeq, Throwable e) {
+        // 依赖失败语句的后续语句以相同的异常结束，只保留位置最靠前的一条
+        if (sqlSeq < this.failureSeq && !(e instanceof CancellationException)) {
+            this.failureSeq = sqlSeq;
+            this.failure = e;
+        }
+    }
+
+    /**
+     * 在主线程中一次获取全部工作连接，获取失败时直接抛出异常
+     *
+     * <p>工作线程数与工作连接数相同，工作线程从空闲连接中取得连接时不会长时间等待。</p>
+     */
+    private void openWorkerConnections() {
+        if (!this.workerConnections.isEmpty()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < this.workers; i++) {
+                Connection workerConnection = this.jdbcUtil.getConnection();
+                this.workerConnections.add(workerConnection);
+                workerConnection.setAutoCommit(true);
+                this.idleConnections.add(workerConnection);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void executeOnWorker(String sql, long sqlSeq) {
+        // 只跳过位置在失败语句之后的语句，位置靠前的语句仍然执行，以便报告位置最靠前的失败语句
+        if (this.failure != null && failedBefore(sqlSeq)) {
+            throw new CancellationException("skipped after failure");
+        }
+        Connection workerConnection;
+        try {
+            workerConnection = this.idleConnections.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            this.jdbcUtil.executeObserved(workerConnection, sql, this.workerObserver);
+        } finally {
+            this.idleConnections.add(workerConnection);
+        }
+    }
+
+    /**
+     * 等待已开始的语句全部结束并转发其回调，有语句失败时抛出第一个异常
+     */
+    private void awaitInFlight() {
+        while (!this.inFlight.isEmpty()) {
+            try {
+                CompletableFuture.allOf(this.inFlight.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException | CancellationException e) {
+                // 异常已记录在failure中，继续等待其他语句结束
+            }
+        }
+        this.workerObserver.drain();
+        Throwable e = this.failure;
+        if (e != null) {
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void closeWorkerConnections() {
+        for (Connection workerConnection : this.workerConnections) {
+            this.jdbcUtil.closeStatementCache(workerConnection);
+            try {
+                workerConnection.close();
+            } catch (SQLException e) {
+                logger.warn("worker connection close fail. {}", e.getMessage());
+            }
+        }
+        this.workerConnections.clear();
+    }
+
+    /**
+     * 工作线程中的回调先放入队列，由主线程调用{@link #drain()}按完成顺序转发的观察者
+     */
+    private static class DeferredObserver implements StatementObserver {
+        private final StatementObserver delegate;
+        private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
+
+        DeferredObserver(StatementObserver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void beforeStatement(String sql) {
+            callbacks.add(() -> delegate.beforeStatement(sql));
+        }
+
+        @Override
+        public void afterStatement(String sql, long nanos, long updateCount, boolean batched) {
+            callbacks.add(() -> delegate.afterStatement(sql, nanos, updateCount, batched));
+        }
+
+        void drain() {
+            Runnable callback;
+            while ((callback = callbacks.poll()) != null) {
+                callback.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package czhao.open.footprint.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CSV数据导入脚本阅读器
+ *
+ * <p>CSV脚本(UTF-8编码)由头部与数据行组成：</p>
+ * <p>1. 头部以"# key: value"格式的指令行开始，"table"指定导入的目标表(必须)，
+ * "delimiter"指定字段分隔符(可选，支持","、";"、"|"与"tab"，默认",")，其他以"#"开头的行视为注释；</p>
+ * <p>2. 指令行之后的第一行是字段名行，指定各列对应的目标表字段；</p>
+ * <p>3. 之后每行是一条数据，格式遵循RFC 4180：包含分隔符、引号或换行的值用双引号包围，值中的双引号写作两个双引号；
+ * 没有引号包围的NULL表示SQL的NULL值，空行被忽略。</p>
+ * <p>读取时同时统计读取的字节数并计算整个文件内容的摘要，与{@link DigestUtil#digestHex(InputStream)}的结果一致。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class CsvScript implements Closeable {
+    /**
+     * 目标表指令
+     */
+    public static final String DIRECTIVE_TABLE = "table";
+
+    /**
+     * 字段分隔符指令
+     */
+    public static final String DIRECTIVE_DELIMITER = "delimiter";
+
+    /**
+     * 表示SQL的NULL值的字段值(没有引号包围时)
+     */
+    public static final String NULL_VALUE = "NULL";
+
+    private static final Pattern PTN_DIRECTIVE = Pattern.compile("^#\\s*(\\w+)\\s*:\\s*(.*?)\\s*$");
+    // 表名与字段名只支持字母、数字、下划线与$，表名可以带库名前缀；会直接拼接到SQL中
+    private static final Pattern PTN_IDENTIFIER = Pattern.compile("^[A-Za-z_][\\w$]*(\\.[A-Za-z_][\\w$]*)?$");
+    private static final int EOF = -1;
+
+    private final CountingDigestInputStream countingStream;
+    // 头部之后的数据部分
+    private final BufferedInputStream dataStream;
+
+    private String table;
+    private List<String> columns;
+    private char delimiter = ',';
+    // 字段名行是否以"\r\n"结束，数据行的换行符与之相同
+    private boolean crlf = false;
+    // 当前行号(从1开始)，用于错误信息
+    private long lineNumber = 0;
+
+    // 按行解析数据时的字符缓冲，首次调用nextRecord时创建
+    private Reader reader;
+    private final char[] buffer = new char[8192];
+    private int bufferPos = 0;
+    private int bufferLen = 0;
+    private boolean dataStarted = false;
+    private String digestHex;
+
+    /**
+     * CsvScript构造方法，读取并解析头部
+     *
+     * @param inputStream CSV脚本输入流，由{@link #close()}关闭
+     */
+    public CsvScript(InputStream inputStream) {
+        this.countingStream = new CountingDigestInputStream(inputStream);
+        this.dataStream = new BufferedInputStream(this.countingStream, 64 * 1024);
+        try {
+            readHeader();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void readHeader() throws IOException {
+        String line;
+        while ((line = readHeaderLine()) != null) {
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                Matcher matcher = PTN_DIRECTIVE.matcher(line);
+                if (matcher.matches()) {
+                    applyDirective(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2));
+                }
+                continue;
+            }
+            if (table == null) {
+                throw new RuntimeException("csv script has no \"# " + DIRECTIVE_TABLE + ": \" directive before the column header!");
+            }
+            List<String> names = new ArrayList<>();
+            for (String name : line.split(Pattern.quote(String.valueOf(delimiter)), -1)) {
+                names.add(checkIdentifier(name.trim()));
+            }
+            this.columns = List.copyOf(names);
+            return;
+        }
+        throw new RuntimeException("csv script has no column header!");
+    }
+
+    private void applyDirective(String key, String value) {
+        switch (key) {
+            case DIRECTIVE_TABLE -> this.table = checkIdentifier(value);
+            case DIRECTIVE_DELIMITER -> this.delimiter = switch (value.toLowerCase(Locale.ROOT)) {
+                case "," -> ',';
+                case ";" -> ';';
+                case "|" -> '|';
+                case "tab", "\\t", "\t" -> '\t';
+                default -> throw new RuntimeException("csv script delimiter [" + value + "] is not supported!");
+            };
+            default -> {
+                // 其他指令视为注释
+            }
+        }
+    }
+
+    private String checkIdentifier(String name) {
+        if (!PTN_IDENTIFIER.matcher(name).matches()) {
+            throw new RuntimeException("csv script identifier [" + name + "] at line " + lineNumber + " is not correct!");
+        }
+        return name;
+    }
+
+    /**
+     * 按字节读取头部的一行，使数据部分从字节流的正确位置开始
+     *
+     * @return 不含换行符的行，没有更多内容时返回null
+     */
+    private String readHeaderLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = dataStream.read()) != EOF && b != '\n') {
+            line.write(b);
+        }
+        if (b == EOF && line.size() == 0) {
+            return null;
+        }
+        lineNumber++;
+        byte[] bytes = line.toByteArray();
+        int len = bytes.length;
+        crlf = len > 0 && bytes[len - 1] == '\r';
+        if (crlf) {
+            len--;
+        }
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取下一条数据
+     *
+     * @return 各字段的值，没有引号包围的NULL为null；没有更多数据时返回null
+     */
+    public String[] nextRecord() {
+        try {
+            if (reader == null) {
+                dataStarted = true;
+                reader = new InputStreamReader(dataStream, StandardCharsets.UTF_8);
+            }
+            int c = read();
+            // 忽略空行
+            while (c == '\n' || (c == '\r' && peek() == '\n')) {
+                lineNumber++;
+                if (c == '\r') {
+                    read();
+                }
+                c = read();
+            }
+            if (c == EOF) {
+                return null;
+            }
+            lineNumber++;
+            List<String> fields = new ArrayList<>(columns.size());
+            StringBuilder field = new StringBuilder();
+            while (true) {
+                boolean quoted = false;
+                field.setLength(0);
+                if (c == '"') {
+                    quoted = true;
+                    c = readQuoted(field);
+                } else {
+                    while (c != EOF && c != delimiter && c != '\n') {
+                        if (c == '\r' && peek() == '\n') {
+                            c = read();
+                            break;
+                        }
+                        field.append((char) c);
+                        c = read();
+                    }
+                }
+                String value = field.toString();
+                fields.add(!quoted && NULL_VALUE.equals(value) ? null : value);
+                if (c != delimiter) {
+                    return fields.toArray(new String[0]);
+                }
+                c = read();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取双引号包围的值，当前位置在开始的双引号之后
+     *
+     * @return 结束的双引号之后的字符
+     */
+    private int readQuoted(StringBuilder field) throws IOException {
+        long startLine = lineNumber;
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '"') {
+                if (peek() != '"') {
+                    c = read();
+                    if (c == '\r' && peek() == '\n') {
+                        c = read();
+                    }
+                    if (c != EOF && c != delimiter && c != '\n') {
+                        throw new RuntimeException("csv script line " + lineNumber + ": unexpected character after closing quote!");
+                    }
+                    return c;
+                }
+                read();
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            field.append((char) c);
+        }
+        throw new RuntimeException("csv script line " + startLine + ": quoted value is not closed!");
+    }
+
+    private int read() throws IOException {
+        if (bufferPos >= bufferLen && !fill()) {
+            return EOF;
+        }
+        return buffer[bufferPos++];
+    }
+
+    private int peek() throws IOException {
+        if (bufferPos >= bufferLen && !fill()) {
+            return EOF;
+        }
+        return buffer[bufferPos];
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        bufferPos = 0;
+        bufferLen = n;
+        return true;
+    }
+
+    /**
+     * 取得头部之后的数据部分的输入流，用于直接交给数据库导入
+     *
+     * <p>只能在没有调用{@link #nextRecord()}时使用。</p>
+     *
+     * @return 数据部分输入流
+     */
+    public InputStream getDataStream() {
+        if (dataStarted) {
+            throw new IllegalStateException("csv script records have been read!");
+        }
+        dataStarted = true;
+        return dataStream;
+    }
+
+    /**
+     * 取得整个文件内容的摘要，未读取完的部分会先被读取
+     *
+     * @return 16进制摘要
+     */
+    public String getDigestHex() {
+        if (digestHex == null) {
+            try {
+                dataStream.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            digestHex = DigestUtil.toHex(countingStream.digest.digest());
+        }
+        return digestHex;
+    }
+
+    /**
+     * @return 已读取的字节数
+     */
+    public long getBytesRead() {
+        return countingStream.count;
+    }
+
+    /**
+     * @return 当前行号
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @return 数据行是否以"\r\n"换行
+     */
+    public boolean isCrlf() {
+        return crlf;
+    }
+
+    @Override
+    public void close() {
+        try {
+            dataStream.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 统计字节数并计算摘要的输入流
+     */
+    private static class CountingDigestInputStream extends FilterInputStream {
+        private final MessageDigest digest = DigestUtil.newDigest();
+        private long count = 0;
+
+        CountingDigestInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != EOF) {
+                digest.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的内容也要计入摘要
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            int read = read(skipped, 0, skipped.length);
+            return Math.max(read, 0);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package czhao.open.footprint.utils;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * DDL执行策略(MySQL)
+ *
+ * <p>DDL需要目标表的排他元数据锁，等待期间该表上所有新的查询都会排在它后面。为了避免迁移长时间阻塞业务流量：</p>
+ * <p>1. 执行DDL前将会话的lock_wait_timeout设为[lockWaitSeconds]，执行后恢复原值，单次等待元数据锁最多阻塞业务[lockWaitSeconds]秒；</p>
+ * <p>2. 等待元数据锁超时(错误码1205)时，在[retrySeconds]秒内按指数退避(带随机抖动)重试，重试间隔期间业务查询正常执行；</p>
+ * <p>3. 开启onlineAlter时，为没有指定ALGORITHM与LOCK的ALTER TABLE与CREATE INDEX加上"ALGORITHM=INPLACE, LOCK=NONE"，
+ * 不支持在线变更的操作会直接报错，而不是锁表执行。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DdlPolicy {
+    /**
+     * MySQL锁等待超时错误码(ER_LOCK_WAIT_TIMEOUT)，等待元数据锁超过lock_wait_timeout时返回
+     */
+    public static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    /**
+     * 重试的初始退避时间(毫秒)
+     */
+    public static final long RETRY_BACKOFF_INITIAL_MILLIS = 500;
+
+    /**
+     * 重试的最大退避时间(毫秒)
+     */
+    public static final long RETRY_BACKOFF_MAX_MILLIS = 10000;
+
+    /**
+     * 受执行策略控制的DDL语句关键字
+     */
+    private static final Set<String> DDL_KEYWORDS = Set.of("CREATE", "ALTER", "DROP", "TRUNCATE", "RENAME");
+    private static final Pattern PTN_ALTER_TABLE = Pattern.compile("^\\s*ALTER\\s+(ONLINE\\s+|IGNORE\\s+)*TABLE\\s", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PTN_CREATE_INDEX = Pattern.compile("^\\s*CREATE\\s+((UNIQUE|FULLTEXT|SPATIAL)\\s+)?INDEX\\s", Pattern.CASE_INSENSITIVE);
+    // 已经指定了ALGORITHM或LOCK选项，或者带有分区操作(分区操作之后不能再加ALTER选项)；只匹配选项语法，不匹配同名的字段与索引
+    private static final Pattern PTN_ALGORITHM_OR_LOCK = Pattern.compile(
+            "\\b(ALGORITHM|LOCK)\\s*=|\\bPARTITION\\s+BY\\b|\\bREMOVE\\s+PARTITIONING\\b"
+                    + "|\\b(ADD|DROP|DISCARD|IMPORT|TRUNCATE|COALESCE|REORGANIZE|EXCHANGE|ANALYZE|CHECK|OPTIMIZE|REBUILD|REPAIR)\\s+PARTITION\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PTN_TRAILING = Pattern.compile("[\\s;]+$");
+
+    private final int lockWaitSeconds;
+    private final int retrySeconds;
+    private final boolean onlineAlter;
+
+    /**
+     * DdlPolicy构造方法
+     *
+     * @param lockWaitSeconds 执行DDL时会话的lock_wait_timeout(秒)，0表示不修改
+     * @param retrySeconds    等待元数据锁超时后的重试时间(秒)，0表示不重试
+     * @param onlineAlter     是否为ALTER TABLE与CREATE INDEX加上"ALGORITHM=INPLACE, LOCK=NONE"
+     */
+    public DdlPolicy(int lockWaitSeconds, int retrySeconds, boolean onlineAlter) {
+        this.lockWaitSeconds = Math.max(lockWaitSeconds, 0);
+        this.retrySeconds = Math.max(retrySeconds, 0);
+        this.onlineAlter = onlineAlter;
+    }
+
+    /**
+     * @return 是否有需要执行的策略
+     */
+    public boolean isEnabled() {
+        return lockWaitSeconds > 0 || retrySeconds > 0 || onlineAlter;
+    }
+
+    /**
+     * 判断SQL语句是否是受执行策略控制的DDL语句
+     *
+     * @param sql SQL语句
+     * @return 是否是DDL语句
+     */
+    public boolean appliesTo(String sql) {
+        return DDL_KEYWORDS.contains(SqlUtil.firstKeyword(sql));
+    }
+
+    /**
+     * 开启onlineAlter时为ALTER TABLE与CREATE INDEX加上"ALGORITHM=INPLACE, LOCK=NONE"
+     *
+     * <p>语句中已经指定了ALGORITHM或LOCK选项，或者带有分区操作时不做修改。</p>
+     *
+     * @param sql DDL语句
+     * @return 改写后的DDL语句
+     */
+    public String rewrite(String sql) {
+        if (!onlineAlter || PTN_ALGORITHM_OR_LOCK.matcher(sql).find()) {
+            return sql;
+        }
+        String ddl = PTN_TRAILING.matcher(sql).replaceAll("");
+        if (PTN_ALTER_TABLE.matcher(ddl).find()) {
+            return ddl + ", ALGORITHM=INPLACE, LOCK=NONE";
+        }
+        if (PTN_CREATE_INDEX.matcher(ddl).find()) {
+            return ddl + " ALGORITHM=INPLACE LOCK=NONE";
+        }
+        return sql;
+    }
+
+    /**
+     * 判断是否是等待锁超时的异常，会检查异常链
+     *
+     * @param e SQL异常
+     * @return 是否是锁等待超时
+     */
+    public static boolean isLockWaitTimeout(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sqlException && sqlException.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getLockWaitSeconds() {
+        return lockWaitSeconds;
+    }
+
+    public int getRetrySeconds() {
+        return retrySeconds;
+    }
+
+    public boolean isOnlineAlter() {
+        return onlineAlter;
+    }
+
+    @Override
+    public String toString() {
+        return "DdlPolicy{" +
+                "lockWaitSeconds=" + lockWaitSeconds +
+                ", retrySeconds=" + retrySeconds +
+                ", onlineAlter=" + onlineAlter +
+                '}';
+    }
+}
@@ -0,0 +1,119 @@
+package czhao.open.footprint.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 脚本文件摘要缓存
+ *
+ * <p>以文件绝对路径为键，记录文件字节数、最后修改时间与摘要；字节数与最后修改时间都未变化时直接使用缓存的摘要，不再读取文件。</p>
+ * <p>缓存文件为UTF-8文本，每行以制表符分隔：[字节数]	[最后修改时间(毫秒)]	[摘要]	[文件绝对路径]。</p>
+ * <p>线程安全，可以并行计算多个文件的摘要。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DigestCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 从缓存文件加载摘要缓存，缓存文件不存在时返回空缓存
+     *
+     * @param cacheFile 缓存文件
+     * @return 摘要缓存
+     */
+    public static DigestCache load(Path cacheFile) {
+        DigestCache cache = new DigestCache();
+        if (!Files.isRegularFile(cacheFile)) {
+            return cache;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) {
+                    // 缓存文件损坏时忽略该行，重新计算摘要即可
+                    continue;
+                }
+                cache.entries.put(fields[3], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            return new DigestCache();
+        }
+        return cache;
+    }
+
+    /**
+     * 将摘要缓存写入缓存文件
+     *
+     * @param cacheFile 缓存文件
+     */
+    public void save(Path cacheFile) {
+        try (Writer writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                writer.write(e.getValue().size + "\t" + e.getValue().lastModified + "\t" + e.getValue().digestHex + "\t" + e.getKey() + "\n");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取文件摘要，文件字节数与最后修改时间未变化时使用缓存
+     *
+     * @param path 文件路径
+     * @return 16进制摘要
+     */
+    public String digestHex(Path path) {
+        return digestHex(path, ScriptCodec.NONE);
+    }
+
+    /**
+     * 获取文件解压后内容的摘要，文件字节数与最后修改时间未变化时使用缓存
+     *
+     * @param path  文件路径
+     * @param codec 文件压缩格式
+     * @return 16进制摘要
+     */
+    public String digestHex(Path path, ScriptCodec codec) {
+        try {
+            Path absPath = path.toAbsolutePath();
+            BasicFileAttributes attrs = Files.readAttributes(absPath, BasicFileAttributes.class);
+            long size = attrs.size();
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            String key = absPath.toString();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+                return entry.digestHex;
+            }
+            String digestHex;
+            try (InputStream inputStream = codec.decode(Files.newInputStream(absPath))) {
+                digestHex = DigestUtil.digestHex(inputStream);
+            }
+            entries.put(key, new Entry(size, lastModified, digestHex));
+            return digestHex;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String digestHex;
+
+        private Entry(long size, long lastModified, String digestHex) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digestHex = digestHex;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package czhao.open.footprint.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 脚本内容摘要工具
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DigestUtil {
+    /**
+     * 脚本内容摘要算法
+     */
+    public static final String ALGORITHM = "SHA-256";
+
+    private DigestUtil() {
+    }
+
+    /**
+     * 创建脚本内容摘要计算对象
+     *
+     * @return MessageDigest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 转换为16进制小写字符串
+     *
+     * @param digest 摘要
+     * @return 16进制字符串
+     */
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * 计算输入流内容的摘要，不会关闭输入流
+     *
+     * @param inputStream 输入流
+     * @return 16进制摘要
+     * @throws IOException IO异常
+     */
+    public static String digestHex(InputStream inputStream) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = inputStream.read(buffer)) > 0) {
+            md.update(buffer, 0, n);
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * 计算文件内容的摘要
+     *
+     * @param path 文件路径
+     * @return 16进制摘要
+     * @throws IOException IO异常
+     */
+    public static String digestHex(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return digestHex(inputStream);
+        }
+    }
+}
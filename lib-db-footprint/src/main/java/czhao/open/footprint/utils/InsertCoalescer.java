@@ -0,0 +1,225 @@
+package czhao.open.footprint.utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 单行INSERT语句合并器
+ *
+ * <p>包装SQL语句迭代器，将连续的、向同一张表的同一字段列表插入单行数据的INSERT语句合并为一条多行INSERT语句：</p>
+ * <p>"INSERT INTO t (a, b) VALUES (1, 'x');" 与 "INSERT INTO t (a, b) VALUES (2, 'y');"
+ * 合并为 "INSERT INTO t (a, b) VALUES (1, 'x'), (2, 'y')"。</p>
+ * <p>1. 只合并"INSERT [IGNORE] [INTO] 表名 [(字段列表)] VALUES (...)"形式、且值列表之后没有其他内容的语句，
+ * INSERT ... SELECT、INSERT ... SET、带ON DUPLICATE KEY UPDATE的语句与其他语句原样输出；</p>
+ * <p>2. 表名与字段列表的文本(连续空白视为一个空格)完全相同的语句才会合并；</p>
+ * <p>3. 合并后的语句不超过[maxBytes]个字节(UTF-8)，超过时开始新的一条；</p>
+ * <p>4. 语句的执行顺序不变，遇到不能合并的语句时先输出已合并的部分。</p>
+ * <p>注意合并后一条语句插入多行数据，后续语句中的LAST_INSERT_ID()返回的是其中第一行的自增ID。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class InsertCoalescer implements Iterator<String> {
+    // 可合并的INSERT语句值列表之前的部分；字段列表中不能有括号与引号
+    private static final Pattern PTN_SINGLE_ROW_INSERT = Pattern.compile(
+            "^(INSERT\\s+(?:IGNORE\\s+)?(?:INTO\\s+)?[\\w`.$]+\\s*(?:\\([^()'\"]*\\))?\\s*VALUES?)\\s*(?=\\()",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PTN_WHITESPACES = Pattern.compile("\\s+");
+
+    private final Iterator<String> sqls;
+    private final int maxBytes;
+
+    // 正在合并的语句前缀(值列表之前的部分，已合并连续空白)，null表示没有正在合并的语句
+    private String pendingPrefix;
+    // 正在合并的语句
+    private StringBuilder pending;
+    // 正在合并的语句的字节数
+    private int pendingBytes;
+    // 读取到的、不能合并到正在合并的语句中的下一条语句
+    private String lookahead;
+
+    // 合并前后的语句数
+    private long inputCount = 0;
+    private long outputCount = 0;
+
+    /**
+     * InsertCoalescer构造方法
+     *
+     * @param sqls     SQL语句迭代器
+     * @param maxBytes 合并后单条语句的最大字节数，应小于数据库的max_allowed_packet
+     */
+    public InsertCoalescer(Iterator<String> sqls, int maxBytes) {
+        this.sqls = sqls;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null || lookahead != null || sqls.hasNext();
+    }
+
+    @Override
+    public String next() {
+        while (true) {
+            String sql;
+            if (lookahead != null) {
+                sql = lookahead;
+                lookahead = null;
+            } else if (sqls.hasNext()) {
+                sql = sqls.next();
+                inputCount++;
+            } else if (pending != null) {
+                return takePending();
+            } else {
+                throw new NoSuchElementException();
+            }
+
+            String[] parts = splitSingleRowInsert(sql);
+            if (parts == null) {
+                // 不能合并的语句，先输出已合并的部分
+                if (pending != null) {
+                    lookahead = sql;
+                    return takePending();
+                }
+                outputCount++;
+                return sql;
+            }
+            String prefix = parts[0];
+            String row = parts[1];
+            if (pending == null) {
+                startPending(prefix, row);
+                continue;
+            }
+            int rowBytes = utf8Length(row) + 2;
+            if (prefix.equals(pendingPrefix) && pendingBytes + rowBytes <= maxBytes) {
+                pending.append(", ").append(row);
+                pendingBytes += rowBytes;
+                continue;
+            }
+            lookahead = sql;
+            return takePending();
+        }
+    }
+
+    /**
+     * @return 已读取的原始语句数
+     */
+    public long getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @return 已输出的语句数
+     */
+    public long getOutputCount() {
+        return outputCount;
+    }
+
+    private void startPending(String prefix, String row) {
+        pendingPrefix = prefix;
+        pending = new StringBuilder(prefix.length() + row.length() * 8).append(prefix).append(' ').append(row);
+        pendingBytes = utf8Length(prefix) + 1 + utf8Length(row);
+    }
+
+    private String takePending() {
+        String sql = pending.toString();
+        pendingPrefix = null;
+        pending = null;
+        pendingBytes = 0;
+        outputCount++;
+        return sql;
+    }
+
+    /**
+     * 将单行INSERT语句拆分为前缀与值列表
+     *
+     * @param sql SQL语句
+     * @return [前缀, 值列表]，不是可以合并的单行INSERT语句时返回null
+     */
+    static String[] splitSingleRowInsert(String sql) {
+        if (sql.length() < 6 || (sql.charAt(0) | 0x20) != 'i') {
+            return null;
+        }
+        Matcher matcher = PTN_SINGLE_ROW_INSERT.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        int start = matcher.end();
+        int end = findRowEnd(sql, start);
+        if (end < 0) {
+            return null;
+        }
+        // 值列表之后只能是空白
+        for (int i = end; i < sql.length(); i++) {
+            if (!Character.isWhitespace(sql.charAt(i))) {
+                return null;
+            }
+        }
+        return new String[]{PTN_WHITESPACES.matcher(matcher.group(1)).replaceAll(" "), sql.substring(start, end)};
+    }
+
+    /**
+     * 查找从start位置的"("开始的值列表的结束位置，跳过引号中的内容与嵌套的括号
+     *
+     * @return 值列表结束位置(不含)，值列表不完整时返回-1
+     */
+    private static int findRowEnd(String sql, int start) {
+        int depth = 0;
+        int len = sql.length();
+        for (int i = start; i < len; i++) {
+            char c = sql.charAt(i);
+            switch (c) {
+                case '(' -> depth++;
+                case ')' -> {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+                case '\'', '"', '`' -> {
+                    i = skipQuoted(sql, i, c);
+                    if (i < 0) {
+                        return -1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 引号结束位置，引号没有结束时返回-1
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int len = sql.length();
+        for (int i = start + 1; i < len; i++) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i++;
+            } else if (c == quote) {
+                // 两个引号连写表示引号本身
+                if (i + 1 < len && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // 代理对的两个char各计2字节，合计4字节
+                bytes += c >= 0x800 && !Character.isSurrogate(c) ? 2 : 1;
+            }
+        }
+        return bytes;
+    }
+}
@@ -7,10 +7,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Properties;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * JDBC操作工具类
@@ -26,20 +33,63 @@ public class JdbcUtil {
      */
     private final DataSource dataSource;
 
+    /**
+     * 是否由本工具类创建并管理连接池，外部传入的数据源不会在{@link #close()}时关闭
+     */
+    private final boolean ownDataSource;
+
     /**
      * SQL执行器
      */
     private final QueryRunner sqlRunner;
 
+    /**
+     * 每个JDBC连接最多缓存的PreparedStatement数，默认0，即不缓存
+     */
+    private volatile int statementCacheSize = 0;
+
+    /**
+     * JDBC连接 -> 该连接的PreparedStatement缓存；连接包装对象的equals可能比较底层连接，因此按对象标识区分
+     */
+    private final Map<Connection, PreparedStatementCache> statementCaches = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * PreparedStatement缓存的命中与未命中次数
+     */
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * DDL执行策略，默认null，即直接执行
+     */
+    private volatile DdlPolicy ddlPolicy;
+
     /**
      * JdbcUtil构造方法
      *
+     * <p>使用默认的连接池参数创建commons-dbcp连接池。</p>
+     *
      * @param driverClassName JDBC驱动包
      * @param url             JDBC连接
      * @param username        JDBC连接用户
      * @param password        JDBC连接用户密码
      */
     public JdbcUtil(String driverClassName, String url, String username, String password) {
+        this(driverClassName, url, username, password, new Properties());
+    }
+
+    /**
+     * JdbcUtil构造方法
+     *
+     * <p>创建commons-dbcp连接池，poolProperties中的参数(commons-dbcp的属性名)覆盖默认的连接池参数。</p>
+     *
+     * @param driverClassName JDBC驱动包
+     * @param url             JDBC连接
+     * @param username        JDBC连接用户
+     * @param password        JDBC连接用户密码
+     * @param poolProperties  连接池参数，如maxActive、initialSize、maxWait、connectionProperties、defaultTransactionIsolation
+     */
+    public JdbcUtil(String driverClassName, String url, String username, String password, Properties poolProperties) {
         Properties properties = new Properties();
         properties.setProperty("driverClassName", driverClassName);
         properties.setProperty("url", url);
@@ -51,9 +101,13 @@ public class JdbcUtil {
         properties.setProperty("minIdle", "0");
         properties.setProperty("maxWait", "0");
         properties.setProperty("initialSize", "1");
-        logger.debug("DataSource Properties : {}", properties);
+        properties.putAll(poolProperties);
+        logger.debug("DataSource Properties : {}", properties.stringPropertyNames().stream()
+                .filter(name -> !"password".equals(name))
+                .collect(Collectors.toMap(name -> name, properties::getProperty)));
         try {
             this.dataSource = BasicDataSourceFactory.createDataSource(properties);
+            this.ownDataSource = true;
             this.sqlRunner = new QueryRunner(this.dataSource);
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -61,10 +115,24 @@ public class JdbcUtil {
     }
 
     /**
-     * 关闭连接池
+     * JdbcUtil构造方法
+     *
+     * <p>使用外部管理的数据源(如应用自身的连接池)，不会创建新的连接池，{@link #close()}时也不会关闭该数据源。</p>
+     *
+     * @param dataSource 外部管理的数据源
+     */
+    public JdbcUtil(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.ownDataSource = false;
+        this.sqlRunner = new QueryRunner(this.dataSource);
+    }
+
+    /**
+     * 关闭连接池，外部传入的数据源不会被关闭
      */
     public void close() {
-        if (this.dataSource instanceof BasicDataSource ds) {
+        closeAllStatementCaches();
+        if (this.ownDataSource && this.dataSource instanceof BasicDataSource ds) {
             try {
                 logger.info("dataSource close...");
                 ds.close();
@@ -74,6 +142,77 @@ public class JdbcUtil {
         }
     }
 
+    /**
+     * 设置每个JDBC连接最多缓存的PreparedStatement数
+     *
+     * <p>大于0时，在传入的JDBC连接中执行的DML语句(包括带参数的数据库版本记录插入与更新)以SQL文为键缓存PreparedStatement，
+     * 相同SQL文再次执行时不再重新创建；DDL等其他语句可能改变表结构，总是重新创建。</p>
+     * <p>使用完JDBC连接后应调用{@link #closeStatementCache(Connection)}关闭其缓存。</p>
+     *
+     * @param statementCacheSize 最多缓存的PreparedStatement数，0表示不缓存，小于0时不做修改
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize >= 0) {
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * 设置DDL执行策略
+     *
+     * <p>设置后，{@link #executeWithConnection}、{@link #executeBatchWithConnection}与
+     * {@link #executeConcurrentlyWithConnection}执行的DDL语句按策略设置会话的lock_wait_timeout、
+     * 在等待元数据锁超时后重试，以及改写为在线变更。详见{@link DdlPolicy}。</p>
+     *
+     * @param ddlPolicy DDL执行策略，null表示直接执行
+     */
+    public void setDdlPolicy(DdlPolicy ddlPolicy) {
+        this.ddlPolicy = ddlPolicy;
+    }
+
+    public DdlPolicy getDdlPolicy() {
+        return ddlPolicy;
+    }
+
+    /**
+     * @return PreparedStatement缓存的累计命中次数
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * @return PreparedStatement缓存的累计未命中次数
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * 关闭JDBC连接的PreparedStatement缓存，须在关闭该连接之前调用
+     *
+     * @param connection JDBC连接
+     */
+    public void closeStatementCache(Connection connection) {
+        PreparedStatementCache cache = statementCaches.remove(connection);
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    private void closeAllStatementCaches() {
+        List<PreparedStatementCache> caches;
+        synchronized (statementCaches) {
+            caches = new ArrayList<>(statementCaches.values());
+            statementCaches.clear();
+        }
+        caches.forEach(PreparedStatementCache::close);
+    }
+
     /**
      * 获取连接池
      *
@@ -127,7 +266,7 @@ public class JdbcUtil {
     public void execute(Connection connection, String sql, Object... params) {
         logger.debug("execute(Connection connection, String sql, Object... params), sql:[{}], params:{}", sql, params);
         try {
-            sqlRunner.execute(connection, sql, params);
+            executeStatement(connection, sql, params);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -144,8 +283,12 @@ public class JdbcUtil {
         try (Connection connection = dataSource.getConnection()) {
             connection.setAutoCommit(false);
             logger.debug("executeWithTranslation start.");
-            for (String sql : sqls) {
-                execute(connection, sql);
+            try {
+                for (String sql : sqls) {
+                    execute(connection, sql);
+                }
+            } finally {
+                closeStatementCache(connection);
             }
             connection.commit();
             logger.debug("executeWithTranslation commit.");
@@ -163,12 +306,293 @@ public class JdbcUtil {
      *
      * <p>由于DDL会即时提交事务，此处传入的SQL语句应都是DML语句。</p>
      *
+     * <p>sqls可以是{@code scriptReader.streamSqls()::iterator}，此时SQL语句边读取边执行。</p>
+     *
      * @param connection JDBC连接
      * @param sqls       SQL语句集合
      */
-    public void executeWithConnection(Connection connection, List<String> sqls) {
+    public void executeWithConnection(Connection connection, Iterable<String> sqls) {
+        executeWithConnection(connection, sqls, StatementObserver.NONE);
+    }
+
+    /**
+     * 在传入的JDBC连接中执行SQL语句(不主动提交事务)，每条语句执行前后回调观察者
+     *
+     * @param connection JDBC连接
+     * @param sqls       SQL语句集合
+     * @param observer   SQL语句执行观察者
+     * @see #executeWithConnection(Connection, Iterable)
+     */
+    public void executeWithConnection(Connection connection, Iterable<String> sqls, StatementObserver observer) {
         for (String sql : sqls) {
-            execute(connection, sql);
+            executeObserved(connection, sql, observer);
+        }
+    }
+
+    void executeObserved(Connection connection, String sql, StatementObserver observer) {
+        logger.debug("executeObserved, sql:[{}]", sql);
+        observer.beforeStatement(sql);
+        long start = System.nanoTime();
+        int updateCount;
+        DdlPolicy policy = this.ddlPolicy;
+        try {
+            if (policy != null && policy.isEnabled() && policy.appliesTo(sql)) {
+                updateCount = executeDdl(connection, sql, policy);
+            } else {
+                updateCount = executeStatement(connection, sql);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        observer.afterStatement(sql, System.nanoTime() - start, updateCount, false);
+    }
+
+    /**
+     * 按DDL执行策略执行DDL语句
+     *
+     * <p>执行前将会话的lock_wait_timeout设为策略中的值，执行后恢复原值；
+     * 等待元数据锁超时时按指数退避(带随机抖动)重试，直到超过策略中的重试时间。</p>
+     *
+     * @return 影响行数，没有影响行数时为-1
+     */
+    private int executeDdl(Connection connection, String sql, DdlPolicy policy) throws SQLException {
+        String ddl = policy.rewrite(sql);
+        if (!ddl.equals(sql)) {
+            logger.debug("executeDdl online alter, sql:[{}]", ddl);
+        }
+        Long originalLockWait = null;
+        if (policy.getLockWaitSeconds() > 0) {
+            originalLockWait = queryLockWaitTimeout(connection);
+            setLockWaitTimeout(connection, policy.getLockWaitSeconds());
+        }
+        try {
+            long deadline = System.currentTimeMillis() + policy.getRetrySeconds() * 1000L;
+            long backoff = DdlPolicy.RETRY_BACKOFF_INITIAL_MILLIS;
+            int attempt = 1;
+            while (true) {
+                try {
+                    return executeStatement(connection, ddl);
+                } catch (SQLException e) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (!DdlPolicy.isLockWaitTimeout(e) || remaining <= 0) {
+                        throw e;
+                    }
+                    long sleepMillis = Math.min(remaining, backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                    logger.warn("DDL等待元数据锁超时，{}毫秒后第{}次重试: {}", sleepMillis, attempt, SqlUtil.abbreviate(sql, 100));
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(ie);
+                    }
+                    backoff = Math.min(backoff * 2, DdlPolicy.RETRY_BACKOFF_MAX_MILLIS);
+                    attempt++;
+                }
+            }
+        } finally {
+            if (originalLockWait != null) {
+                try {
+                    setLockWaitTimeout(connection, originalLockWait);
+                } catch (SQLException e) {
+                    logger.warn("restore lock_wait_timeout fail. {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private long queryLockWaitTimeout(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT @@SESSION.lock_wait_timeout")) {
+            if (!resultSet.next()) {
+                throw new SQLException("can not read session lock_wait_timeout");
+            }
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void setLockWaitTimeout(Connection connection, long seconds) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION lock_wait_timeout = " + seconds);
+        }
+    }
+
+    /**
+     * 按表依赖关系并发执行SQL语句(每条语句自动提交)
+     *
+     * <p>读写相同表的语句保持脚本中的顺序，读写不同表的语句在从连接池获取的[workers]个工作连接中并发执行；
+     * 不能确定读写哪些表的语句在传入的连接中单独执行，遇到会话语句后剩余语句全部在传入的连接中按顺序执行。
+     * 详见{@link ConcurrentStatementExecutor}。</p>
+     * <p>连接池须至少有[workers]个可用连接，在第一条并发执行的语句之前一次获取；观察者的回调都在调用线程中按完成顺序转发，
+     * 语句完成的顺序不再是脚本中的顺序。</p>
+     *
+     * @param connection JDBC连接，须为自动提交
+     * @param sqls       SQL语句集合
+     * @param workers    工作连接数
+     * @param observer   SQL语句执行观察者
+     */
+    public void executeConcurrentlyWithConnection(Connection connection, Iterable<String> sqls, int workers, StatementObserver observer) {
+        new ConcurrentStatementExecutor(this, connection, workers, observer).execute(sqls);
+    }
+
+    /**
+     * 在传入的JDBC连接中执行SQL，开启了PreparedStatement缓存时DML语句使用缓存
+     *
+     * @return 影响行数，没有影响行数时为-1
+     */
+    private int executeStatement(Connection connection, String sql, Object... params) throws SQLException {
+        int cacheSize = this.statementCacheSize;
+        if (cacheSize <= 0 || !SqlUtil.isDml(sql)) {
+            return sqlRunner.execute(connection, sql, params);
+        }
+        PreparedStatementCache cache = statementCaches.computeIfAbsent(connection, conn -> new PreparedStatementCache(conn, cacheSize));
+        PreparedStatement statement = cache.get(sql);
+        if (statement != null) {
+            statementCacheHits.increment();
+        } else {
+            statementCacheMisses.increment();
+            statement = cache.prepare(sql);
+        }
+        try {
+            sqlRunner.fillStatement(statement, params);
+            statement.execute();
+            return statement.getUpdateCount();
+        } catch (SQLException e) {
+            cache.evict(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * 在传入的JDBC连接中批量执行SQL语句(不主动提交事务)
+     *
+     * <p>连续的DML语句(INSERT/UPDATE/DELETE/REPLACE)通过Statement.addBatch/executeBatch分批执行；</p>
+     * <p>遇到DDL等其他语句时，先执行已积累的批次，再单独执行该语句，保证语句的执行顺序不变。</p>
+     * <p>每个批次在一个事务中执行(连接的autocommit为false时使用保存点)，批次执行失败时回滚该批次，再逐条重新执行，
+     * 在第一条失败的语句处停止并抛出包含该语句的异常，与逐条执行的结果一致。
+     * 驱动在失败后继续执行批次(如MySQL的continueBatchOnError)或改写批次(如rewriteBatchedStatements)时也是如此。</p>
+     * <p>遇到会话语句(事务控制、SET等，见{@link SqlUtil#isSessionStatement(String)})时，先执行已积累的批次，
+     * 之后脚本剩余的语句全部逐条执行，批次的事务与保存点不会改变脚本自身的事务(如START TRANSACTION ... ROLLBACK)。</p>
+     *
+     * @param connection JDBC连接
+     * @param sqls       SQL语句集合
+     * @param batchSize  批次大小
+     * @param adaptive   是否根据观测到的执行耗时调整批次大小
+     */
+    public void executeBatchWithConnection(Connection connection, Iterable<String> sqls, int batchSize, boolean adaptive) {
+        executeBatchWithConnection(connection, sqls, batchSize, adaptive, StatementObserver.NONE);
+    }
+
+    /**
+     * 在传入的JDBC连接中批量执行SQL语句(不主动提交事务)，每条语句执行前后回调观察者
+     *
+     * @param connection JDBC连接
+     * @param sqls       SQL语句集合
+     * @param batchSize  批次大小
+     * @param adaptive   是否根据观测到的执行耗时调整批次大小
+     * @param observer   SQL语句执行观察者
+     * @see #executeBatchWithConnection(Connection, Iterable, int, boolean)
+     */
+    public void executeBatchWithConnection(Connection connection, Iterable<String> sqls, int batchSize, boolean adaptive,
+                                           StatementObserver observer) {
+        AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize(batchSize, adaptive);
+        List<String> batchSqls = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            boolean sequential = false;
+            for (String sql : sqls) {
+                if (sequential) {
+                    executeObserved(connection, sql, observer);
+                } else if (SqlUtil.isDml(sql)) {
+                    observer.beforeStatement(sql);
+                    statement.addBatch(sql);
+                    batchSqls.add(sql);
+                    if (batchSqls.size() >= adaptiveBatchSize.current()) {
+                        flushBatch(connection, statement, batchSqls, adaptiveBatchSize, observer);
+                    }
+                } else {
+                    flushBatch(connection, statement, batchSqls, adaptiveBatchSize, observer);
+                    if (SqlUtil.isSessionStatement(sql)) {
+                        logger.info("会话语句之后的语句逐条执行: {}", SqlUtil.abbreviate(sql, 100));
+                        sequential = true;
+                    }
+                    executeObserved(connection, sql, observer);
+                }
+            }
+            flushBatch(connection, statement, batchSqls, adaptiveBatchSize, observer);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void flushBatch(Connection connection, Statement statement, List<String> batchSqls,
+                            AdaptiveBatchSize adaptiveBatchSize, StatementObserver observer) throws SQLException {
+        if (batchSqls.isEmpty()) {
+            return;
+        }
+        logger.debug("executeBatch, size:{}", batchSqls.size());
+        boolean autoCommit = connection.getAutoCommit();
+        Savepoint savepoint = null;
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        } else {
+            savepoint = connection.setSavepoint();
+        }
+        long start = System.nanoTime();
+        int[] updateCounts = null;
+        BatchUpdateException batchFailure = null;
+        try {
+            updateCounts = statement.executeBatch();
+            if (autoCommit) {
+                connection.commit();
+            } else {
+                connection.releaseSavepoint(savepoint);
+            }
+        } catch (BatchUpdateException e) {
+            // 驱动可能已执行了失败语句之后的语句，回滚整个批次
+            if (autoCommit) {
+                connection.rollback();
+            } else {
+                connection.rollback(savepoint);
+            }
+            batchFailure = e;
+        } finally {
+            statement.clearBatch();
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+        if (batchFailure != null) {
+            replayBatch(connection, batchSqls, batchFailure, observer);
+            batchSqls.clear();
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        adaptiveBatchSize.observe(batchSqls.size(), nanos);
+        long avgNanos = nanos / batchSqls.size();
+        for (int i = 0; i < batchSqls.size(); i++) {
+            long updateCount = i < updateCounts.length && updateCounts[i] >= 0 ? updateCounts[i] : -1;
+            observer.afterStatement(batchSqls.get(i), avgNanos, updateCount, true);
+        }
+        batchSqls.clear();
+    }
+
+    /**
+     * 批次执行失败并回滚后，逐条重新执行批次中的语句，在第一条失败的语句处停止
+     *
+     * <p>逐条执行可以准确定位失败的语句，不依赖驱动返回的updateCounts。</p>
+     */
+    private void replayBatch(Connection connection, List<String> batchSqls, BatchUpdateException batchFailure,
+                             StatementObserver observer) {
+        logger.debug("executeBatch fail, replay one by one, size:{}", batchSqls.size());
+        for (String sql : batchSqls) {
+            long start = System.nanoTime();
+            int updateCount;
+            try {
+                updateCount = executeStatement(connection, sql);
+            } catch (SQLException e) {
+                e.addSuppressed(batchFailure);
+                throw new RuntimeException("executeBatch fail, sql:[" + SqlUtil.abbreviate(sql, 2000) + "]", e);
+            }
+            observer.afterStatement(sql, System.nanoTime() - start, updateCount, false);
         }
     }
 }
@@ -0,0 +1,178 @@
+package czhao.open.footprint.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * 以UTF-8字节为扫描单位的SQL脚本词法切分器
+ *
+ * <p>通过FileChannel.map将脚本文件映射到内存，直接在字节上查找语句边界，只对切分出的语句做UTF-8解码，
+ * 省去了InputStreamReader逐字节解码与多次缓冲区拷贝的开销。</p>
+ * <p>超大文件按区段依次映射，单个区段不超过{@link #REGION_SIZE}。</p>
+ *
+ * @author zhaochun
+ */
+class MappedScriptLexer extends ScriptLexer {
+    /**
+     * 单次映射的区段大小，256MB
+     */
+    static final long REGION_SIZE = 1L << 28;
+    private static final int WINDOW_SIZE = 16 * 1024;
+    // 语句缓冲区容量超过该值时，输出语句后重新分配，避免个别超大语句长期占用内存
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    // 下一个区段在文件中的起始位置
+    private long regionStart = 0;
+    private MappedByteBuffer region;
+    // 从映射区段批量取出的字节窗口，避免逐字节调用MappedByteBuffer.get()的边界检查开销
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    // 已从映射区段取出的字节数
+    private long bytesRead = 0;
+    // 脚本内容摘要计算对象，为null时不计算摘要
+    private final MessageDigest digest;
+
+    // 语句缓冲区
+    private byte[] statement = new byte[256];
+    private int statementLength = 0;
+
+    /**
+     * MappedScriptLexer构造方法
+     *
+     * @param scriptPath 脚本文件路径，脚本须为UTF-8编码
+     * @param digest     脚本内容摘要计算对象，为null时不计算摘要
+     * @throws IOException IO异常
+     */
+    MappedScriptLexer(Path scriptPath, MessageDigest digest) throws IOException {
+        this.digest = digest;
+        this.channel = FileChannel.open(scriptPath, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        if (mapNextRegion() && region.remaining() >= 3
+                && region.get(0) == (byte) 0xEF && region.get(1) == (byte) 0xBB && region.get(2) == (byte) 0xBF) {
+            // 跳过UTF-8 BOM
+            region.position(3);
+            bytesRead = 3;
+            if (digest != null) {
+                digest.update(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+            }
+        }
+    }
+
+    private boolean mapNextRegion() throws IOException {
+        if (regionStart >= fileSize) {
+            return false;
+        }
+        long size = Math.min(REGION_SIZE, fileSize - regionStart);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+        regionStart += size;
+        return true;
+    }
+
+    @Override
+    protected int read() throws IOException {
+        if (position == limit && !fillWindow()) {
+            return EOF;
+        }
+        return window[position++] & 0xFF;
+    }
+
+    private boolean fillWindow() throws IOException {
+        if (region == null || !region.hasRemaining()) {
+            if (!mapNextRegion()) {
+                return false;
+            }
+        }
+        limit = Math.min(WINDOW_SIZE, region.remaining());
+        region.get(window, 0, limit);
+        bytesRead += limit;
+        if (digest != null) {
+            digest.update(window, 0, limit);
+        }
+        position = 0;
+        return true;
+    }
+
+    @Override
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    protected void append(int unit) {
+        if (statementLength == statement.length) {
+            statement = Arrays.copyOf(statement, statementLength << 1);
+        }
+        statement[statementLength++] = (byte) unit;
+    }
+
+    @Override
+    protected void appendPlainRun(boolean[] stops) {
+        int start = position;
+        int p = start;
+        while (p < limit) {
+            byte b = window[p];
+            // UTF-8多字节字符的字节均为负数，不会是需要逐个处理的ASCII扫描单位
+            if (b >= 0 && stops[b]) {
+                break;
+            }
+            p++;
+        }
+        int n = p - start;
+        if (n > 0) {
+            if (statementLength + n > statement.length) {
+                statement = Arrays.copyOf(statement, Math.max(statementLength + n, statement.length << 1));
+            }
+            System.arraycopy(window, start, statement, statementLength, n);
+            statementLength += n;
+            position = p;
+        }
+    }
+
+    @Override
+    protected int length() {
+        return statementLength;
+    }
+
+    @Override
+    protected int unitAt(int index) {
+        return statement[index] & 0xFF;
+    }
+
+    @Override
+    protected void truncate(int length) {
+        if (length == 0 && statement.length > MAX_RETAINED_CAPACITY) {
+            statement = new byte[256];
+        }
+        statementLength = length;
+    }
+
+    @Override
+    protected String toText(int start, int end) {
+        return new String(statement, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected int[] toUnits(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int[] units = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            units[i] = bytes[i] & 0xFF;
+        }
+        return units;
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,39 @@
+package czhao.open.footprint.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基于文件系统路径的SQL脚本来源
+ *
+ * @author zhaochun
+ */
+public class PathScriptSource implements ScriptSource {
+    private final Path path;
+
+    public PathScriptSource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public String getFileName() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package czhao.open.footprint.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个JDBC连接的PreparedStatement缓存
+ *
+ * <p>以SQL文为键，按最近使用顺序保留至多[capacity]个PreparedStatement，超出时关闭最久未使用的一个。</p>
+ * <p>与JDBC连接一样只能在一个线程中使用。</p>
+ *
+ * @author zhaochun
+ */
+class PreparedStatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * PreparedStatementCache构造方法
+     *
+     * @param connection JDBC连接
+     * @param capacity   最多缓存的PreparedStatement数
+     */
+    PreparedStatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 取得缓存的PreparedStatement
+     *
+     * @param sql sql文
+     * @return PreparedStatement，没有缓存或已被关闭(如连接归还连接池)时返回null
+     */
+    PreparedStatement get(String sql) {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            return null;
+        }
+        try {
+            if (!statement.isClosed()) {
+                return statement;
+            }
+        } catch (SQLException e) {
+            closeQuietly(statement);
+        }
+        statements.remove(sql);
+        return null;
+    }
+
+    /**
+     * 新建PreparedStatement并放入缓存
+     *
+     * @param sql sql文
+     * @return PreparedStatement
+     * @throws SQLException SQL异常
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * 移除并关闭缓存的PreparedStatement，用于执行失败后避免复用状态不明的语句
+     *
+     * @param sql sql文
+     */
+    void evict(String sql) {
+        closeQuietly(statements.remove(sql));
+    }
+
+    /**
+     * @return 当前缓存的PreparedStatement数
+     */
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * 关闭所有缓存的PreparedStatement
+     */
+    void close() {
+        statements.values().forEach(PreparedStatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("PreparedStatement close fail. {}", e.getMessage());
+        }
+    }
+}
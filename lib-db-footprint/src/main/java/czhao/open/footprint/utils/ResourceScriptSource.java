@@ -0,0 +1,38 @@
+package czhao.open.footprint.utils;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 基于Spring资源的SQL脚本来源
+ *
+ * @author zhaochun
+ */
+public class ResourceScriptSource implements ScriptSource {
+    private final Resource resource;
+
+    public ResourceScriptSource(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String getFileName() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return resource.getInputStream();
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    @Override
+    public String toString() {
+        return resource.getDescription();
+    }
+}
@@ -0,0 +1,109 @@
+package czhao.open.footprint.utils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * 切换到指定schema的数据源
+ *
+ * <p>多个schema共用一个连接池时使用：每次从连接池取得连接后，先切换到本数据源的schema再返回。</p>
+ * <p>优先通过Connection.setCatalog切换(MySQL的database)；驱动不支持catalog切换时(如H2、PostgreSQL)，再通过Connection.setSchema切换，
+ * 此时被包装的数据源须支持JDBC 4.1。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class SchemaSwitchingDataSource implements DataSource {
+    private final DataSource delegate;
+    private final String schema;
+
+    /**
+     * SchemaSwitchingDataSource构造方法
+     *
+     * @param delegate 共用的连接池
+     * @param schema   要切换到的schema
+     */
+    public SchemaSwitchingDataSource(DataSource delegate, String schema) {
+        this.delegate = delegate;
+        this.schema = schema;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return switchSchema(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return switchSchema(delegate.getConnection(username, password));
+    }
+
+    private Connection switchSchema(Connection connection) throws SQLException {
+        try {
+            connection.setCatalog(schema);
+            if (!schema.equalsIgnoreCase(connection.getCatalog())) {
+                setSchema(connection);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private void setSchema(Connection connection) throws SQLException {
+        try {
+            connection.setSchema(schema);
+        } catch (AbstractMethodError e) {
+            // commons-dbcp 1.x等早于JDBC 4.1的连接包装类没有实现setSchema
+            throw new SQLFeatureNotSupportedException("Connection.setSchema is not supported by " + connection.getClass().getName()
+                    + ", use a JDBC 4.1 DataSource to switch schema " + schema, e);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
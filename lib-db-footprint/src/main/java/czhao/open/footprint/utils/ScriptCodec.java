@@ -0,0 +1,86 @@
+package czhao.open.footprint.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 脚本文件压缩格式
+ *
+ * <p>根据脚本文件名的后缀识别，如"raven_V1.0.0_init.sql.gz"为GZIP压缩的"raven_V1.0.0_init.sql"。
+ * 压缩脚本读取时边读取边解压，版本号根据去掉压缩后缀的文件名解析，脚本内容摘要基于解压后的内容计算，
+ * 因此已执行的脚本压缩后摘要不变。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public enum ScriptCodec {
+    /**
+     * 未压缩
+     */
+    NONE("") {
+        @Override
+        public InputStream decode(InputStream inputStream) {
+            return inputStream;
+        }
+    },
+
+    /**
+     * GZIP压缩，后缀".gz"
+     */
+    GZIP(".gz") {
+        @Override
+        public InputStream decode(InputStream inputStream) throws IOException {
+            try {
+                return new GZIPInputStream(inputStream, 64 * 1024);
+            } catch (IOException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+    };
+
+    private final String suffix;
+
+    ScriptCodec(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * 包装为解压后的输入流
+     *
+     * @param inputStream 压缩文件输入流
+     * @return 解压后的输入流，关闭时同时关闭原输入流
+     * @throws IOException IO异常(如压缩文件头不正确)
+     */
+    public abstract InputStream decode(InputStream inputStream) throws IOException;
+
+    /**
+     * 根据文件名后缀识别压缩格式
+     *
+     * @param fileName 文件名
+     * @return 压缩格式，没有压缩后缀时为{@link #NONE}
+     */
+    public static ScriptCodec of(String fileName) {
+        for (ScriptCodec codec : values()) {
+            if (codec != NONE && fileName.endsWith(codec.suffix)) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 去掉文件名的压缩后缀
+     *
+     * @param fileName 文件名
+     * @return 压缩前的文件名
+     */
+    public String stripSuffix(String fileName) {
+        return fileName.endsWith(suffix) ? fileName.substring(0, fileName.length() - suffix.length()) : fileName;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+}
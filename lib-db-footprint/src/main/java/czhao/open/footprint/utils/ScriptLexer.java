@@ -0,0 +1,398 @@
+package czhao.open.footprint.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * SQL脚本词法切分器
+ *
+ * <p>对脚本内容做单次扫描，按语句分隔符切分出SQL语句，支持：</p>
+ * <p>1. 单引号、双引号、反引号包围的内容(含反斜杠转义与两个引号连写)中的分隔符不会结束语句；</p>
+ * <p>2. "--"行注释会被去除；块注释会保留在语句中，但其中的分隔符不会结束语句，只有注释的语句会被丢弃("/*!"与"/*+"开头的注释视为语句内容)；</p>
+ * <p>3. "DELIMITER xx"命令行可以修改语句分隔符，用于存储过程与触发器的定义，该命令行本身不会作为语句输出。</p>
+ *
+ * <p>扫描单位(unit)由子类决定，可以是字符，也可以是UTF-8字节：</p>
+ * <p>所有需要识别的符号都是ASCII字符，而UTF-8多字节字符的每个字节都不小于0x80，因此两种扫描单位的切分结果一致。</p>
+ * <p>扫描过程中只在子类的语句缓冲区中累积当前语句，除最终输出的语句字符串外不产生其他对象。</p>
+ *
+ * @author zhaochun
+ */
+abstract class ScriptLexer implements Iterator<String>, Closeable {
+    protected static final int EOF = -1;
+    private static final int NONE = -2;
+    private static final String DELIMITER_COMMAND = "delimiter";
+    // 引号内需要逐个处理的扫描单位
+    private static final boolean[] QUOTED_STOPS = stops("'\"`\\");
+    // 块注释内需要逐个处理的扫描单位
+    private static final boolean[] COMMENT_STOPS = stops("*");
+
+    // 当前语句分隔符
+    private int[] delimiter = {';'};
+    // 引号外、注释外需要逐个处理的扫描单位，其余扫描单位可以批量追加；分隔符末尾不是ASCII字符时为null，即不使用批量追加
+    private boolean[] plainStops = stops("'\"`-/\n;");
+    // 回退的扫描单位，NONE表示没有
+    private int pushback = NONE;
+    // 当前语句中第一个有效内容(非空白、非普通注释)的位置，-1表示尚无有效内容
+    private int contentStart = -1;
+    // 当前位置是否处于行首(本行尚未出现非空白内容)
+    private boolean lineStart = true;
+
+    // 预读的下一条SQL语句
+    private String nextSql;
+    // 是否已扫描到脚本末尾
+    private boolean eof = false;
+
+    /**
+     * 读取下一个扫描单位
+     *
+     * @return 扫描单位，到达末尾时返回{@link #EOF}
+     * @throws IOException IO异常
+     */
+    protected abstract int read() throws IOException;
+
+    /**
+     * 向语句缓冲区追加一个扫描单位
+     *
+     * @param unit 扫描单位
+     */
+    protected abstract void append(int unit);
+
+    /**
+     * @return 语句缓冲区当前长度
+     */
+    protected abstract int length();
+
+    /**
+     * @param index 位置
+     * @return 语句缓冲区指定位置的扫描单位
+     */
+    protected abstract int unitAt(int index);
+
+    /**
+     * 截断语句缓冲区
+     *
+     * @param length 截断后的长度
+     */
+    protected abstract void truncate(int length);
+
+    /**
+     * 将语句缓冲区的指定区间转换为字符串
+     *
+     * @param start 开始位置(含)
+     * @param end   结束位置(不含)
+     * @return 字符串
+     */
+    protected abstract String toText(int start, int end);
+
+    /**
+     * 将分隔符字符串转换为扫描单位序列
+     *
+     * @param text 分隔符字符串
+     * @return 扫描单位序列
+     */
+    protected abstract int[] toUnits(String text);
+
+    /**
+     * 将已读入但尚未扫描的、连续的普通扫描单位批量追加到语句缓冲区
+     *
+     * <p>遇到stops中标记的ASCII扫描单位，或者已读入的扫描单位用完时停止，不会触发新的读取。</p>
+     *
+     * @param stops 需要逐个处理的ASCII扫描单位
+     */
+    protected abstract void appendPlainRun(boolean[] stops);
+
+    @Override
+    public boolean hasNext() {
+        if (nextSql == null && !eof) {
+            try {
+                nextSql = scanNext();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (nextSql == null) {
+                eof = true;
+            }
+        }
+        return nextSql != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String sql = nextSql;
+        nextSql = null;
+        return sql;
+    }
+
+    /**
+     * @return 是否已经扫描到脚本末尾
+     */
+    boolean isExhausted() {
+        return eof;
+    }
+
+    /**
+     * @return 已从脚本来源读取的字节数，不支持统计时返回-1
+     */
+    long getBytesRead() {
+        return -1;
+    }
+
+    private String scanNext() throws IOException {
+        while (true) {
+            if (plainStops != null && pushback == NONE && contentStart >= 0 && !lineStart) {
+                // 语句中间的普通内容不会改变扫描状态，可以批量追加
+                appendPlainRun(plainStops);
+            }
+            int c = nextUnit();
+            boolean end;
+            switch (c) {
+                case EOF:
+                    return finishAtEof();
+                case '\'':
+                case '"':
+                case '`':
+                    scanQuoted(c);
+                    end = false;
+                    break;
+                case '-':
+                    end = scanDash();
+                    break;
+                case '/':
+                    end = scanSlash();
+                    break;
+                default:
+                    end = appendNormal(c);
+            }
+            if (end) {
+                String sql = takeStatement(length() - delimiter.length);
+                if (sql != null) {
+                    return sql;
+                }
+            }
+        }
+    }
+
+    private int nextUnit() throws IOException {
+        if (pushback != NONE) {
+            int c = pushback;
+            pushback = NONE;
+            return c;
+        }
+        return read();
+    }
+
+    private void markContent() {
+        lineStart = false;
+        if (contentStart < 0) {
+            contentStart = length();
+        }
+    }
+
+    /**
+     * 追加引号外、注释外的扫描单位，并判断语句是否结束
+     */
+    private boolean appendNormal(int c) {
+        if (c == '\n') {
+            append(c);
+            lineStart = true;
+            if (isDelimiterCommand(length() - 1)) {
+                applyDelimiterCommand(length() - 1);
+            }
+            return false;
+        }
+        if (!isWhitespace(c)) {
+            markContent();
+        }
+        append(c);
+        return c == delimiter[delimiter.length - 1] && endsWithDelimiter() && !isDelimiterCommand(length());
+    }
+
+    private void scanQuoted(int quote) throws IOException {
+        markContent();
+        append(quote);
+        int c;
+        while (true) {
+            if (pushback == NONE) {
+                appendPlainRun(QUOTED_STOPS);
+            }
+            if ((c = nextUnit()) == EOF) {
+                return;
+            }
+            append(c);
+            if (c == '\\' && quote != '`') {
+                int escaped = nextUnit();
+                if (escaped == EOF) {
+                    return;
+                }
+                append(escaped);
+            } else if (c == quote) {
+                return;
+            }
+        }
+    }
+
+    private boolean scanDash() throws IOException {
+        int n = nextUnit();
+        if (n != '-') {
+            pushback = n;
+            return appendNormal('-');
+        }
+        int n2 = nextUnit();
+        if (n2 == EOF || isWhitespace(n2) || lineStart) {
+            // 行注释，丢弃至行尾
+            int c = n2;
+            while (c != EOF && c != '\n') {
+                c = nextUnit();
+            }
+            return c == '\n' && appendNormal('\n');
+        }
+        pushback = n2;
+        appendNormal('-');
+        return appendNormal('-');
+    }
+
+    private boolean scanSlash() throws IOException {
+        int n = nextUnit();
+        if (n != '*') {
+            pushback = n;
+            return appendNormal('/');
+        }
+        int n2 = nextUnit();
+        if (n2 == '!' || n2 == '+') {
+            // MySQL可执行注释与优化器提示属于语句内容
+            markContent();
+        }
+        lineStart = false;
+        append('/');
+        append('*');
+        if (n2 == EOF) {
+            return false;
+        }
+        append(n2);
+        int prev = n2;
+        int c;
+        while (true) {
+            if (prev != '*' && pushback == NONE) {
+                appendPlainRun(COMMENT_STOPS);
+            }
+            if ((c = nextUnit()) == EOF) {
+                return false;
+            }
+            append(c);
+            if (prev == '*' && c == '/') {
+                return false;
+            }
+            prev = c;
+        }
+    }
+
+    private boolean endsWithDelimiter() {
+        int len = length();
+        int delimLen = delimiter.length;
+        if (len < delimLen) {
+            return false;
+        }
+        for (int i = 0; i < delimLen - 1; i++) {
+            if (unitAt(len - delimLen + i) != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断当前语句是否是"DELIMITER xx"命令行
+     *
+     * @param end 命令行结束位置(不含)
+     */
+    private boolean isDelimiterCommand(int end) {
+        if (contentStart < 0 || end - contentStart <= DELIMITER_COMMAND.length() + 1) {
+            return false;
+        }
+        for (int i = 0; i < DELIMITER_COMMAND.length(); i++) {
+            if ((unitAt(contentStart + i) | 0x20) != DELIMITER_COMMAND.charAt(i)) {
+                return false;
+            }
+        }
+        int sep = unitAt(contentStart + DELIMITER_COMMAND.length());
+        if (sep != ' ' && sep != '\t') {
+            return false;
+        }
+        for (int i = contentStart + DELIMITER_COMMAND.length() + 1; i < end; i++) {
+            if (unitAt(i) == '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyDelimiterCommand(int end) {
+        String newDelimiter = toText(contentStart + DELIMITER_COMMAND.length() + 1, end).strip();
+        if (newDelimiter.isEmpty()) {
+            throw new RuntimeException("DELIMITER command without delimiter!");
+        }
+        this.delimiter = toUnits(newDelimiter);
+        int last = this.delimiter[this.delimiter.length - 1];
+        if (last < 128) {
+            this.plainStops = stops("'\"`-/\n");
+            this.plainStops[last] = true;
+        } else {
+            this.plainStops = null;
+        }
+        reset();
+    }
+
+    private String finishAtEof() {
+        if (isDelimiterCommand(length())) {
+            applyDelimiterCommand(length());
+            return null;
+        }
+        // 特殊场景处理：如果sql脚本最后一条sql语句没有写分隔符结尾，也需要将其作为一条sql语句。
+        return takeStatement(length());
+    }
+
+    /**
+     * 取出当前语句，去除首尾空白；只有注释与空白的语句返回null
+     *
+     * @param end 语句结束位置(不含分隔符)
+     */
+    private String takeStatement(int end) {
+        if (contentStart < 0 || contentStart >= end) {
+            reset();
+            return null;
+        }
+        int start = 0;
+        while (start < end && isWhitespace(unitAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(unitAt(end - 1))) {
+            end--;
+        }
+        String sql = toText(start, end);
+        reset();
+        return sql;
+    }
+
+    private void reset() {
+        truncate(0);
+        contentStart = -1;
+        lineStart = true;
+    }
+
+    private static boolean[] stops(String units) {
+        boolean[] stops = new boolean[128];
+        for (int i = 0; i < units.length(); i++) {
+            stops[units.charAt(i)] = true;
+        }
+        return stops;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c <= ' ' && c >= 0;
+    }
+}
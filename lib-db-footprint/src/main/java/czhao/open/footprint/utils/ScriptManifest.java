@@ -0,0 +1,140 @@
+package czhao.open.footprint.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL脚本清单
+ *
+ * <p>在编译打包时生成于脚本目录下(文件名{@link #FILE_NAME})，列出该目录下所有sql脚本，运行时据此直接定位脚本，无需扫描classpath。</p>
+ * <p>文件格式为UTF-8文本，"#"开头的行为注释，其余每行对应一个脚本，各字段以制表符分隔：</p>
+ * <p>[业务空间]	[版本号]	[脚本文件名]	[文件字节数]	[SHA-256摘要(16进制)]</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class ScriptManifest {
+    /**
+     * 脚本清单文件名
+     */
+    public static final String FILE_NAME = "footprint-scripts.idx";
+    private static final String HEADER = "# footprint script manifest v1";
+    private static final char SEPARATOR = '\t';
+
+    private final List<Entry> entries;
+
+    public ScriptManifest(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * 读取脚本清单，不会关闭输入流
+     *
+     * @param inputStream 脚本清单输入流
+     * @return 脚本清单
+     * @throws IOException IO异常
+     */
+    public static ScriptManifest read(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<Entry> entries = new ArrayList<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != 5) {
+                throw new RuntimeException(FILE_NAME + " line " + lineNo + " format is not correct!");
+            }
+            entries.add(new Entry(fields[0], fields[1], fields[2], Long.parseLong(fields[3]), fields[4]));
+        }
+        return new ScriptManifest(entries);
+    }
+
+    /**
+     * 写出脚本清单，不会关闭Writer
+     *
+     * @param writer Writer
+     * @throws IOException IO异常
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Entry entry : entries) {
+            writer.write(entry.getBusinessSpace());
+            writer.write(SEPARATOR);
+            writer.write(entry.getVersion());
+            writer.write(SEPARATOR);
+            writer.write(entry.getFileName());
+            writer.write(SEPARATOR);
+            writer.write(String.valueOf(entry.getSize()));
+            writer.write(SEPARATOR);
+            writer.write(entry.getDigestHex());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 脚本清单条目
+     */
+    public static class Entry {
+        private final String businessSpace;
+        private final String version;
+        private final String fileName;
+        private final long size;
+        private final String digestHex;
+
+        public Entry(String businessSpace, String version, String fileName, long size, String digestHex) {
+            this.businessSpace = businessSpace;
+            this.version = version;
+            this.fileName = fileName;
+            this.size = size;
+            this.digestHex = digestHex;
+        }
+
+        public String getBusinessSpace() {
+            return businessSpace;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getDigestHex() {
+            return digestHex;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "businessSpace='" + businessSpace + '\'' +
+                    ", version='" + version + '\'' +
+                    ", fileName='" + fileName + '\'' +
+                    ", size=" + size +
+                    ", digestHex='" + digestHex + '\'' +
+                    '}';
+        }
+    }
+}
@@ -1,28 +1,52 @@
 package czhao.open.footprint.utils;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * SQL脚本阅读器
  *
+ * <p>语句的切分规则见{@link ScriptLexer}：引号与块注释中的分号不会结束语句，支持"DELIMITER"命令修改分隔符。</p>
+ *
  * @author zhaochun
  */
 public class ScriptReader {
+    /**
+     * 使用内存映射读取脚本文件的文件大小下限，64KB
+     *
+     * <p>小文件的映射开销大于其收益，直接使用输入流读取。</p>
+     */
+    public static final long MMAP_THRESHOLD = 64 * 1024;
+
     /**
      * 脚本文件输入流
      *
      * <p>此处设计为InputStream的原因：</p>
      * <p>要考虑sql脚本直接打包在jar包的resource目录下的场景，jar中的文件不能直接作为FileSystem的文件访问，因此不能直接设计为文件路径。</p>
+     * <p>以脚本文件路径构造时为null。</p>
      */
     private final InputStream inputStream;
 
+    /**
+     * 脚本文件路径
+     *
+     * <p>文件系统中的脚本文件可以直接使用路径构造，此时不小于{@link #MMAP_THRESHOLD}的UTF-8脚本会通过内存映射按字节切分语句。</p>
+     * <p>以输入流构造时为null。</p>
+     */
+    private final Path scriptPath;
+
     /**
      * 脚本字符集
      *
@@ -30,6 +54,28 @@ public class ScriptReader {
      */
     private Charset charset = StandardCharsets.UTF_8;
 
+    /**
+     * 脚本内容摘要计算对象，为null时不计算摘要
+     *
+     * <p>摘要在读取脚本的同时计算，不会再次读取脚本文件。</p>
+     */
+    private MessageDigest digest;
+
+    /**
+     * 脚本内容摘要(16进制)
+     */
+    private String digestHex;
+
+    /**
+     * 当前使用的词法切分器
+     */
+    private ScriptLexer lexer;
+
+    /**
+     * 以输入流读取脚本时的字节计数流，使用内存映射读取时为null
+     */
+    private CountingInputStream countingStream;
+
     /**
      * ScriptReader构造方法
      *
@@ -37,6 +83,17 @@ public class ScriptReader {
      */
     public ScriptReader(InputStream inputStream) {
         this.inputStream = inputStream;
+        this.scriptPath = null;
+    }
+
+    /**
+     * ScriptReader构造方法
+     *
+     * @param scriptPath 脚本文件路径
+     */
+    public ScriptReader(Path scriptPath) {
+        this.inputStream = null;
+        this.scriptPath = scriptPath;
     }
 
     /**
@@ -48,49 +105,131 @@ public class ScriptReader {
     @SuppressWarnings("unused")
     public ScriptReader(InputStream inputStream, Charset charset) {
         this.inputStream = inputStream;
+        this.scriptPath = null;
         this.charset = charset;
     }
 
+    /**
+     * 读取脚本的同时计算脚本内容摘要，须在读取脚本之前调用
+     *
+     * <p>摘要基于脚本文件的原始字节计算，算法见{@link DigestUtil#ALGORITHM}。</p>
+     */
+    public void enableDigest() {
+        this.digest = DigestUtil.newDigest();
+    }
+
+    /**
+     * 获取脚本内容摘要
+     *
+     * @return 16进制摘要；没有开启摘要计算，或者脚本尚未读取完毕时返回null
+     */
+    public String getDigestHex() {
+        if (this.digestHex == null && this.digest != null && this.lexer != null && this.lexer.isExhausted()) {
+            this.digestHex = DigestUtil.toHex(this.digest.digest());
+        }
+        return this.digestHex;
+    }
+
+    /**
+     * 获取已从脚本来源读取的字节数
+     *
+     * <p>以输入流读取时包含字符解码器预读的部分，因此脚本读取完毕前可能略大于已切分出的语句字节数。</p>
+     *
+     * @return 已读取字节数，尚未开始读取时返回0
+     */
+    public long getBytesRead() {
+        if (this.countingStream != null) {
+            return this.countingStream.count;
+        }
+        return this.lexer == null ? 0 : Math.max(0, this.lexer.getBytesRead());
+    }
+
     /**
      * 读取SQL脚本文件
      *
+     * <p>会将整个脚本的SQL语句读入内存，大脚本请使用{@link #streamSqls()}。</p>
+     *
      * @return SQL语句集合
      */
     public List<String> readSqls() {
-        List<String> sqls = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(this.inputStream, charset))) {
-            // 生成sql构造器
-            StringBuilder sqlBuilder = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                // 去除首位空白字符
-                String lineStrip = line.strip();
-                // 去除空行、注释行
-                if (lineStrip.isBlank() || lineStrip.startsWith("--")) {
-                    continue;
-                }
-                if (lineStrip.endsWith(";")) {
-                    // 如果该行以";"结尾，则认为该条sql语句结束
-                    // 先去除末尾分号
-                    String tmpLine = lineStrip.substring(0, lineStrip.length() - 1);
-                    // 将该行加入sql构造器
-                    sqlBuilder.append(tmpLine).append(" \n");
-                    // 将sql构造器转为sql语句，加入sql语句集合
-                    sqls.add(sqlBuilder.toString().strip());
-                    // 清空sql构造器
-                    sqlBuilder = new StringBuilder();
-                } else {
-                    // 如果该行没有以";"结尾，则认为该条sql语句尚未结束
-                    sqlBuilder.append(lineStrip).append(" \n");
-                }
-            }
-            // 特殊场景处理：如果sql脚本最后一条sql语句没有写";"结尾，则需要将非空的sql构造器转为sql语句并加入sql语句集合。
-            if (sqlBuilder.length() > 0) {
-                sqls.add(sqlBuilder.toString().strip());
+        try (Stream<String> sqls = streamSqls()) {
+            return sqls.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 以流的方式读取SQL脚本文件
+     *
+     * <p>SQL语句在流被消费时才逐条解析，内存占用只取决于单条SQL语句的大小，与脚本文件大小无关。</p>
+     * <p>流使用完毕后需要关闭(推荐try-with-resources)，以关闭脚本文件输入流。</p>
+     *
+     * @return SQL语句流
+     */
+    public Stream<String> streamSqls() {
+        ScriptLexer lexer = createLexer();
+        this.lexer = lexer;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lexer, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        lexer.close();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    private ScriptLexer createLexer() {
+        if (this.scriptPath == null) {
+            return new CharScriptLexer(new InputStreamReader(wrapInputStream(this.inputStream), charset));
+        }
+        try {
+            if (StandardCharsets.UTF_8.equals(charset) && Files.size(this.scriptPath) >= MMAP_THRESHOLD) {
+                return new MappedScriptLexer(this.scriptPath, this.digest);
             }
+            return new CharScriptLexer(new InputStreamReader(wrapInputStream(Files.newInputStream(this.scriptPath)), charset));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return sqls;
+    }
+
+    private InputStream wrapInputStream(InputStream in) {
+        this.countingStream = new CountingInputStream(in);
+        return this.digest == null ? this.countingStream : new DigestInputStream(this.countingStream, this.digest);
+    }
+
+    /**
+     * 统计读取字节数的输入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
     }
 }
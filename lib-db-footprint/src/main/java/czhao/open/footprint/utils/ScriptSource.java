@@ -0,0 +1,98 @@
+package czhao.open.footprint.utils;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * SQL脚本来源
+ *
+ * <p>只描述脚本在哪里，不持有打开的输入流；只有真正需要读取脚本内容时才通过{@link #openScriptReader()}打开。</p>
+ *
+ * @author zhaochun
+ */
+public interface ScriptSource {
+    /**
+     * 获取脚本文件名
+     *
+     * @return 脚本文件名
+     */
+    String getFileName();
+
+    /**
+     * 打开脚本输入流，由调用方负责关闭
+     *
+     * @return 脚本文件的原始输入流，压缩脚本为压缩后的内容
+     * @throws IOException IO异常
+     */
+    InputStream openInputStream() throws IOException;
+
+    /**
+     * 获取脚本文件的压缩格式
+     *
+     * @return 压缩格式
+     */
+    default ScriptCodec getCodec() {
+        return ScriptCodec.of(getFileName());
+    }
+
+    /**
+     * 打开解压后的脚本内容输入流，由调用方负责关闭
+     *
+     * @return 脚本内容输入流，未压缩的脚本与{@link #openInputStream()}相同
+     * @throws IOException IO异常
+     */
+    default InputStream openScriptStream() throws IOException {
+        return getCodec().decode(openInputStream());
+    }
+
+    /**
+     * 获取脚本文件路径
+     *
+     * @return 文件系统中的脚本文件路径，其他来源返回null
+     */
+    default Path getPath() {
+        return null;
+    }
+
+    /**
+     * 打开脚本阅读器
+     *
+     * <p>文件系统中未压缩的脚本按路径读取(大文件使用内存映射)，其他脚本读取(解压后的)输入流。</p>
+     *
+     * @return SQL脚本阅读器
+     */
+    default ScriptReader openScriptReader() {
+        Path path = getPath();
+        if (path != null && getCodec() == ScriptCodec.NONE) {
+            return new ScriptReader(path);
+        }
+        try {
+            return new ScriptReader(openScriptStream());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 基于Spring资源(如classpath中的脚本)创建脚本来源
+     *
+     * @param resource Spring资源
+     * @return 脚本来源
+     */
+    static ScriptSource of(Resource resource) {
+        return new ResourceScriptSource(resource);
+    }
+
+    /**
+     * 基于文件系统中的脚本文件创建脚本来源
+     *
+     * @param path 脚本文件路径
+     * @return 脚本来源
+     */
+    static ScriptSource of(Path path) {
+        return new PathScriptSource(path);
+    }
+}
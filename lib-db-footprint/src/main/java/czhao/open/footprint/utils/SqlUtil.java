@@ -0,0 +1,487 @@
+package czhao.open.footprint.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * SQL语句文本工具类
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class SqlUtil {
+    /**
+     * 可以通过Statement.addBatch批量执行的DML语句关键字
+     */
+    private static final Set<String> DML_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE", "REPLACE");
+    /**
+     * 改变会话状态(会话变量、当前库、锁、事务等)的语句关键字
+     */
+    private static final Set<String> SESSION_KEYWORDS = Set.of("SET", "USE", "LOCK", "UNLOCK", "START", "BEGIN", "COMMIT",
+            "ROLLBACK", "SAVEPOINT", "RELEASE", "XA", "PREPARE", "EXECUTE", "DEALLOCATE", "HANDLER");
+    // INSERT/REPLACE/UPDATE/DELETE关键字之后可以出现的修饰符
+    private static final Set<String> DML_MODIFIERS = Set.of("LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY", "QUICK", "IGNORE");
+    // 归一化后的值列表，如"(?, -?, ?)"
+    private static final Pattern PTN_VALUE_LIST = Pattern.compile("\\(\\s*-?\\?(\\s*,\\s*-?\\?)*\\s*\\)");
+    // 归一化后连续的多个值列表，如"(?+), (?+)"
+    private static final Pattern PTN_VALUE_LISTS = Pattern.compile("\\(\\?\\+\\)(\\s*,\\s*\\(\\?\\+\\))+");
+
+    private SqlUtil() {
+    }
+
+    /**
+     * 获取SQL语句的首个关键字(大写)
+     *
+     * <p>会跳过语句开头的空白字符、"--"行注释与普通块注释；以"/*!"开头的MySQL可执行注释不会被跳过。</p>
+     *
+     * @param sql SQL语句
+     * @return 首个关键字，没有时返回空字符串
+     */
+    public static String firstKeyword(String sql) {
+        int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                int eol = sql.indexOf('\n', i);
+                i = eol < 0 ? len : eol + 1;
+            } else if (c == '/' && i + 2 < len && sql.charAt(i + 1) == '*' && sql.charAt(i + 2) != '!') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 2;
+            } else {
+                break;
+            }
+        }
+        int start = i;
+        while (i < len && Character.isLetter(sql.charAt(i))) {
+            i++;
+        }
+        return sql.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 判断SQL语句是否是可以批量执行的DML语句
+     *
+     * @param sql SQL语句
+     * @return 是否是DML语句
+     */
+    public static boolean isDml(String sql) {
+        return DML_KEYWORDS.contains(firstKeyword(sql));
+    }
+
+    /**
+     * 判断SQL语句是否改变会话状态
+     *
+     * <p>如SET、USE、LOCK TABLES、事务控制语句与临时表的创建删除；以"/*!"开头的MySQL可执行注释
+     * (通常是导出脚本中的SET语句)也视为会话语句。会话语句只对执行它的连接生效。</p>
+     *
+     * @param sql SQL语句
+     * @return 是否是会话语句
+     */
+    public static boolean isSessionStatement(String sql) {
+        String keyword = firstKeyword(sql);
+        if (keyword.isEmpty() || SESSION_KEYWORDS.contains(keyword)) {
+            return true;
+        }
+        if ("CREATE".equals(keyword) || "DROP".equals(keyword)) {
+            Tokenizer tokenizer = new Tokenizer(sql);
+            tokenizer.next();
+            return "TEMPORARY".equals(tokenizer.next());
+        }
+        return false;
+    }
+
+    /**
+     * 获取SQL语句读写的表
+     *
+     * <p>只识别以下单表(或明确列出表名)的语句，其他语句返回null：</p>
+     * <p>1. CREATE TABLE(包括REFERENCES引用的表与LIKE的源表)、CREATE INDEX ... ON、ALTER TABLE(包括REFERENCES与RENAME TO)、
+     * DROP TABLE、DROP INDEX ... ON、TRUNCATE、RENAME TABLE；</p>
+     * <p>2. 单表的INSERT、REPLACE、UPDATE、DELETE；</p>
+     * <p>语句中出现SELECT(子查询、INSERT ... SELECT、CREATE TABLE ... SELECT)、多表UPDATE/DELETE时返回null。</p>
+     * <p>表名去掉库名前缀与反引号并转为小写，不同库的同名表视为同一张表。</p>
+     *
+     * @param sql SQL语句
+     * @return 表名集合，不能确定时返回null
+     */
+    public static Set<String> touchedTables(String sql) {
+        Tokenizer tokenizer = new Tokenizer(sql);
+        String keyword = tokenizer.next();
+        if (keyword == null) {
+            return null;
+        }
+        Set<String> tables = new LinkedHashSet<>();
+        boolean known = switch (keyword) {
+            case "CREATE" -> createTables(tokenizer, tables);
+            case "ALTER" -> "TABLE".equals(tokenizer.next()) && addTable(tokenizer, tables) && scanDdlTables(tokenizer, tables);
+            case "DROP" -> dropTables(tokenizer, tables);
+            case "TRUNCATE" -> {
+                tokenizer.skipIf("TABLE");
+                yield addTable(tokenizer, tables) && tokenizer.peek() == null;
+            }
+            case "RENAME" -> renameTables(tokenizer, tables);
+            case "INSERT", "REPLACE" -> {
+                tokenizer.skipModifiers();
+                tokenizer.skipIf("INTO");
+                yield addTable(tokenizer, tables) && !tokenizer.skipTo("SELECT");
+            }
+            case "UPDATE" -> {
+                tokenizer.skipModifiers();
+                yield addTable(tokenizer, tables) && updateSingleTable(tokenizer);
+            }
+            case "DELETE" -> {
+                tokenizer.skipModifiers();
+                yield "FROM".equals(tokenizer.next()) && addTable(tokenizer, tables)
+                        && !",".equals(tokenizer.peek()) && !tokenizer.skipTo("SELECT", "USING", "JOIN");
+            }
+            default -> false;
+        };
+        return known ? tables : null;
+    }
+
+    private static boolean createTables(Tokenizer tokenizer, Set<String> tables) {
+        String token = tokenizer.next();
+        while ("UNIQUE".equals(token) || "FULLTEXT".equals(token) || "SPATIAL".equals(token)) {
+            token = tokenizer.next();
+        }
+        if ("TABLE".equals(token)) {
+            tokenizer.skipIf("IF", "NOT", "EXISTS");
+            return addTable(tokenizer, tables) && scanDdlTables(tokenizer, tables);
+        }
+        if ("INDEX".equals(token)) {
+            // CREATE INDEX idx [USING BTREE] ON t (...)
+            return tokenizer.skipTo("ON") && addTable(tokenizer, tables);
+        }
+        return false;
+    }
+
+    private static boolean dropTables(Tokenizer tokenizer, Set<String> tables) {
+        String token = tokenizer.next();
+        if ("TABLE".equals(token)) {
+            tokenizer.skipIf("IF", "EXISTS");
+            do {
+                if (!addTable(tokenizer, tables)) {
+                    return false;
+                }
+            } while (tokenizer.skipIf(","));
+            return true;
+        }
+        if ("INDEX".equals(token)) {
+            return tokenizer.readName() != null && "ON".equals(tokenizer.next()) && addTable(tokenizer, tables);
+        }
+        return false;
+    }
+
+    private static boolean renameTables(Tokenizer tokenizer, Set<String> tables) {
+        if (!"TABLE".equals(tokenizer.next())) {
+            return false;
+        }
+        do {
+            if (!addTable(tokenizer, tables) || !"TO".equals(tokenizer.next()) || !addTable(tokenizer, tables)) {
+                return false;
+            }
+        } while (tokenizer.skipIf(","));
+        return true;
+    }
+
+    /**
+     * UPDATE表名之后只能是可选的别名与SET
+     */
+    private static boolean updateSingleTable(Tokenizer tokenizer) {
+        tokenizer.skipIf("AS");
+        String token = tokenizer.next();
+        if (token != null && !"SET".equals(token) && Tokenizer.isName(token)) {
+            token = tokenizer.next();
+        }
+        return "SET".equals(token) && !tokenizer.skipTo("SELECT");
+    }
+
+    /**
+     * 扫描DDL语句的剩余部分，加入REFERENCES引用的表、LIKE的源表、RENAME TO的新表名与EXCHANGE PARTITION ... WITH TABLE的表
+     *
+     * @return 是否能确定读写的表(出现SELECT时不能确定)
+     */
+    private static boolean scanDdlTables(Tokenizer tokenizer, Set<String> tables) {
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            switch (token) {
+                case "SELECT" -> {
+                    return false;
+                }
+                case "REFERENCES", "LIKE", "TABLE" -> {
+                    if (!addTable(tokenizer, tables)) {
+                        return false;
+                    }
+                }
+                case "RENAME" -> {
+                    String next = tokenizer.peek();
+                    if ("COLUMN".equals(next) || "INDEX".equals(next) || "KEY".equals(next)) {
+                        continue;
+                    }
+                    tokenizer.skipIf("TO");
+                    tokenizer.skipIf("AS");
+                    if (!addTable(tokenizer, tables)) {
+                        return false;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean addTable(Tokenizer tokenizer, Set<String> tables) {
+        String name = tokenizer.readName();
+        if (name == null) {
+            return false;
+        }
+        tables.add(name);
+        return true;
+    }
+
+    /**
+     * 截取SQL语句用于日志与异常信息，避免超长语句刷屏
+     *
+     * @param sql       SQL语句
+     * @param maxLength 最大长度
+     * @return 截取后的SQL语句
+     */
+    public static String abbreviate(String sql, int maxLength) {
+        if (sql.length() <= maxLength) {
+            return sql;
+        }
+        return sql.substring(0, maxLength) + "...(" + sql.length() + " chars)";
+    }
+
+    /**
+     * 归一化SQL语句，用于识别同类语句
+     *
+     * <p>去除普通注释，字符串与数字字面量替换为"?"，值列表"(?, ?)"替换为"(?+)"，多行值列表合并为一个，
+     * 连续空白合并为一个空格，反引号以外的内容转为小写。</p>
+     * <p>例如"INSERT INTO t VALUES (1, 'a'), (2, 'b')"归一化为"insert into t values (?+)"。</p>
+     *
+     * @param sql SQL语句
+     * @return 归一化后的SQL语句
+     */
+    public static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(Math.min(sql.length(), 1024));
+        int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+                sb.append('?');
+            } else if (c == '`') {
+                int end = sql.indexOf('`', i + 1);
+                end = end < 0 ? len : end + 1;
+                sb.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                int eol = sql.indexOf('\n', i);
+                i = eol < 0 ? len : eol;
+            } else if (c == '/' && i + 2 < len && sql.charAt(i + 1) == '*' && sql.charAt(i + 2) != '!' && sql.charAt(i + 2) != '+') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 2;
+                appendSpace(sb);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(sb);
+                i++;
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentifierPart(sb.charAt(sb.length() - 1)))) {
+                while (i < len && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                sb.append('?');
+            } else {
+                sb.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        String normalized = PTN_VALUE_LIST.matcher(sb.toString().strip()).replaceAll("(?+)");
+        return PTN_VALUE_LISTS.matcher(normalized).replaceAll("(?+)");
+    }
+
+    /**
+     * 计算SQL语句的归一化指纹
+     *
+     * @param sql SQL语句
+     * @return 归一化语句SHA-256摘要的前8个字节(16进制)
+     */
+    public static String fingerprint(String sql) {
+        return fingerprintNormalized(normalize(sql));
+    }
+
+    /**
+     * 计算已经归一化的SQL语句的指纹，调用方已经有{@link #normalize(String)}的结果时使用，避免重复归一化
+     *
+     * @param normalized 归一化后的SQL语句
+     * @return 归一化语句SHA-256摘要的前8个字节(16进制)
+     */
+    public static String fingerprintNormalized(String normalized) {
+        byte[] digest = DigestUtil.newDigest().digest(normalized.getBytes(StandardCharsets.UTF_8));
+        return DigestUtil.toHex(digest).substring(0, 16);
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < len && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    private static void appendSpace(StringBuilder sb) {
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+            sb.append(' ');
+        }
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '`';
+    }
+
+    /**
+     * 提取表名用的简单词法分析器
+     *
+     * <p>单词转为大写返回，反引号包围的标识符以"`"开头返回(保持原样)，"."、","、"("与")"作为单个字符返回；
+     * 跳过字符串字面量、注释与其他符号。</p>
+     */
+    private static class Tokenizer {
+        private final String sql;
+        private final int len;
+        private int pos = 0;
+        private String peeked;
+
+        Tokenizer(String sql) {
+            this.sql = sql;
+            this.len = sql.length();
+        }
+
+        String peek() {
+            if (peeked == null) {
+                peeked = read();
+            }
+            return peeked;
+        }
+
+        String next() {
+            String token = peek();
+            peeked = null;
+            return token;
+        }
+
+        /**
+         * 依次匹配时跳过这些单词，第一个不匹配时不跳过
+         *
+         * @return 是否跳过了第一个单词
+         */
+        boolean skipIf(String... tokens) {
+            if (!tokens[0].equals(peek())) {
+                return false;
+            }
+            next();
+            for (int i = 1; i < tokens.length && tokens[i].equals(peek()); i++) {
+                next();
+            }
+            return true;
+        }
+
+        void skipModifiers() {
+            while (peek() != null && DML_MODIFIERS.contains(peek())) {
+                next();
+            }
+        }
+
+        /**
+         * 跳到任一单词之后
+         *
+         * @return 是否找到
+         */
+        boolean skipTo(String... tokens) {
+            String token;
+            while ((token = next()) != null) {
+                for (String t : tokens) {
+                    if (t.equals(token)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 读取可以带库名前缀的名称
+         *
+         * @return 去掉库名前缀与反引号的小写名称，不是名称时返回null
+         */
+        String readName() {
+            String name = null;
+            do {
+                String token = next();
+                if (token == null || !isName(token)) {
+                    return null;
+                }
+                name = token.startsWith("`") ? token.substring(1) : token;
+            } while (skipIf("."));
+            return name.toLowerCase(Locale.ROOT);
+        }
+
+        static boolean isName(String token) {
+            char c = token.charAt(0);
+            return c == '`' || Character.isLetterOrDigit(c) || c == '_' || c == '$';
+        }
+
+        private String read() {
+            while (pos < len) {
+                char c = sql.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '\'' || c == '"') {
+                    pos = skipQuoted(sql, pos, c);
+                } else if (c == '`') {
+                    int end = sql.indexOf('`', pos + 1);
+                    end = end < 0 ? len : end;
+                    String token = "`" + sql.substring(pos + 1, end);
+                    pos = Math.min(end + 1, len);
+                    return token;
+                } else if ((c == '-' && pos + 1 < len && sql.charAt(pos + 1) == '-') || c == '#') {
+                    int eol = sql.indexOf('\n', pos);
+                    pos = eol < 0 ? len : eol + 1;
+                } else if (c == '/' && pos + 1 < len && sql.charAt(pos + 1) == '*') {
+                    int end = sql.indexOf("*/", pos + 2);
+                    pos = end < 0 ? len : end + 2;
+                } else if (isIdentifierPart(c)) {
+                    int start = pos;
+                    while (pos < len && isIdentifierPart(sql.charAt(pos)) && sql.charAt(pos) != '`') {
+                        pos++;
+                    }
+                    return sql.substring(start, pos).toUpperCase(Locale.ROOT);
+                } else {
+                    pos++;
+                    if (c == '.' || c == ',' || c == '(' || c == ')') {
+                        return String.valueOf(c);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
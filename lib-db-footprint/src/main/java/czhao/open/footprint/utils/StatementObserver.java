@@ -0,0 +1,37 @@
+package czhao.open.footprint.utils;
+
+/**
+ * SQL语句执行观察者
+ *
+ * <p>由{@link JdbcUtil}在执行每条SQL语句前后回调，用于统计语句数、耗时与影响行数。</p>
+ * <p>批量执行时，语句在加入批次时回调{@link #beforeStatement(String)}，在批次执行结束后逐条回调{@link #afterStatement}，
+ * 此时单条语句的耗时为批次耗时的平均值。</p>
+ *
+ * @author zhaochun
+ */
+public interface StatementObserver {
+    /**
+     * 不做任何处理的观察者
+     */
+    StatementObserver NONE = new StatementObserver() {
+    };
+
+    /**
+     * 语句执行前(或加入批次时)回调
+     *
+     * @param sql SQL语句
+     */
+    default void beforeStatement(String sql) {
+    }
+
+    /**
+     * 语句执行成功后回调
+     *
+     * @param sql         SQL语句
+     * @param nanos       执行耗时(纳秒)，批量执行时为批次耗时的平均值
+     * @param updateCount 影响行数，驱动没有返回时为-1
+     * @param batched     是否批量执行
+     */
+    default void afterStatement(String sql, long nanos, long updateCount, boolean batched) {
+    }
+}
@@ -0,0 +1,81 @@
+package czhao.open.footprint.versionctl;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 按执行顺序依赖调度业务空间
+ *
+ * <p>依赖关系来自{@link DbVersionCtlProps#makeBusinessSpaceDependencies()}，业务空间须等待其依赖的业务空间全部执行成功后才开始执行；</p>
+ * <p>不在调度的业务空间集合中的业务空间(如没有sql脚本的业务空间)视为已完成，依赖它的业务空间无需等待；</p>
+ * <p>依赖关系有循环时，在提交任何业务空间之前抛出异常。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class BusinessSpaceScheduler {
+    // 业务空间 -> 其依赖的业务空间集合
+    private final Map<String, List<String>> dependencies;
+
+    /**
+     * BusinessSpaceScheduler构造方法
+     *
+     * @param dependencies 业务空间 -> 其依赖的业务空间集合
+     */
+    public BusinessSpaceScheduler(Map<String, List<String>> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * 按依赖关系排序业务空间，被依赖的业务空间在前，没有依赖关系的业务空间保持原顺序
+     *
+     * @param businessSpaces 需要执行的业务空间集合
+     * @return 排序后的业务空间
+     */
+    public List<String> order(Collection<String> businessSpaces) {
+        Set<String> present = new LinkedHashSet<>(businessSpaces);
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String bs : present) {
+            visit(bs, present, new LinkedHashSet<>(), ordered);
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    private void visit(String bs, Set<String> present, Set<String> visiting, Set<String> ordered) {
+        if (ordered.contains(bs)) {
+            return;
+        }
+        if (!visiting.add(bs)) {
+            throw new RuntimeException("DbVersionCtlProps.businessSpaceDependencies has circular dependency on " + bs + " !");
+        }
+        for (String dep : this.dependencies.getOrDefault(bs, List.of())) {
+            if (present.contains(dep)) {
+                visit(dep, present, visiting, ordered);
+            }
+        }
+        visiting.remove(bs);
+        ordered.add(bs);
+    }
+
+    /**
+     * 提交业务空间的执行任务
+     *
+     * @param businessSpaces 需要执行的业务空间集合
+     * @param work           执行一个业务空间的任务
+     * @param executor       执行任务的线程池
+     * @return 业务空间 -> 其执行结果，依赖的业务空间失败时该业务空间不执行，以相同的异常结束
+     */
+    public Map<String, CompletableFuture<Void>> submit(Collection<String> businessSpaces, Consumer<String> work, Executor executor) {
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (String bs : order(businessSpaces)) {
+            CompletableFuture<?>[] depFutures = this.dependencies.getOrDefault(bs, List.of()).stream()
+                    .map(futures::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture<?>[]::new);
+            futures.put(bs, CompletableFuture.allOf(depFutures).thenRunAsync(() -> work.accept(bs), executor));
+        }
+        return futures;
+    }
+}
@@ -1,14 +1,39 @@
 package czhao.open.footprint.versionctl;
 
+import czhao.open.footprint.utils.DdlPolicy;
+import czhao.open.footprint.utils.DigestCache;
+import czhao.open.footprint.utils.DigestUtil;
 import czhao.open.footprint.utils.JdbcUtil;
+import czhao.open.footprint.utils.ScriptSource;
 import czhao.open.footprint.versionctl.chain.DbVersionCtlContext;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics.Phase;
+import czhao.open.footprint.versionctl.entity.DbVersionEntity;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import czhao.open.footprint.versionctl.entity.ValidateResult;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListener;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListeners;
+import czhao.open.footprint.versionctl.lock.AdvisoryMigrationLock;
+import czhao.open.footprint.versionctl.lock.MigrationLock;
+import czhao.open.footprint.versionctl.lock.TableMigrationLock;
 import czhao.open.footprint.versionctl.task.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 数据库版本控制器
@@ -17,56 +42,397 @@ import java.util.Optional;
  */
 @SuppressWarnings("unused")
 public class DbVersionCtl {
+    private static final Logger logger = LoggerFactory.getLogger(DbVersionCtl.class);
+    // 等待集群互斥锁的初始与最大退避间隔(毫秒)
+    private static final long LOCK_BACKOFF_INITIAL_MILLIS = 100;
+    private static final long LOCK_BACKOFF_MAX_MILLIS = 5000;
 
     /**
      * 数据库版本控制配置属性集
      */
     private final DbVersionCtlProps dbVersionCtlProps;
 
+    /**
+     * 外部管理的数据源，为null时每次执行按配置属性创建并关闭连接池
+     */
+    private final DataSource dataSource;
+
+    /**
+     * 最近一次执行的统计
+     */
+    private volatile DbVersionCtlStatistics lastStatistics;
+
+    /**
+     * 数据库版本控制监听器
+     */
+    private final List<DbVersionCtlListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 预先查找好的sql脚本对象集合，为null时每次执行自行查找；多租户执行时所有租户共用一次查找结果
+     */
+    private List<SQLScriptEntity> scannedScripts;
+
     /**
      * DbVersionCtl构造方法
      *
+     * <p>每次执行时按配置属性中的JDBC连接与连接池参数创建连接池，执行结束后关闭。</p>
+     *
      * @param dbVersionCtlProps 数据库版本控制配置属性集
      */
     public DbVersionCtl(DbVersionCtlProps dbVersionCtlProps) {
+        this(dbVersionCtlProps, null);
+    }
+
+    /**
+     * DbVersionCtl构造方法
+     *
+     * <p>使用外部管理的数据源(如应用自身的连接池)，配置属性中的JDBC连接与连接池参数不再生效，执行结束后也不会关闭该数据源。</p>
+     * <p>注意按业务空间并行执行时，该数据源至少需要[parallelWorkers]+1个可用连接。</p>
+     *
+     * @param dbVersionCtlProps 数据库版本控制配置属性集
+     * @param dataSource        外部管理的数据源
+     */
+    public DbVersionCtl(DbVersionCtlProps dbVersionCtlProps, DataSource dataSource) {
         this.dbVersionCtlProps = dbVersionCtlProps;
+        this.dataSource = dataSource;
     }
 
     /**
      * 控制数据库版本升级
      *
      * <p>1. 准备JDBC操作工具和数据库版本控制上下文对象</p>
-     * <p>2. 判断本次数据库版本控制的操作模式</p>
-     * <p>3. 根据操作模式组装任务链</p>
-     * <p>4. 启动任务链</p>
-     * <p>5. 关闭JDBC连接与连接池</p>
+     * <p>2. 开启指纹检查时，sql脚本集合指纹与上次成功执行时一致则直接结束</p>
+     * <p>3. 开启集群互斥锁时，获取锁(其他实例持有时退避等待)，取得锁后再次检查sql脚本集合指纹</p>
+     * <p>4. 判断本次数据库版本控制的操作模式</p>
+     * <p>5. 根据操作模式组装任务链</p>
+     * <p>6. 启动任务链，成功结束后记录sql脚本集合指纹</p>
+     * <p>7. 释放集群互斥锁，关闭JDBC连接与连接池</p>
      */
     public void doDBVersionControl() {
-        // 准备JDBC操作工具
-        JdbcUtil jdbcUtil = new JdbcUtil(dbVersionCtlProps.getDriverClassName(),
-                this.dbVersionCtlProps.getUrl(),
-                this.dbVersionCtlProps.getUsername(),
-                this.dbVersionCtlProps.getPassword());
+        long runStart = System.nanoTime();
+        DbVersionCtlListeners runListeners = new DbVersionCtlListeners(this.listeners);
+        runListeners.onRunStart(this.dbVersionCtlProps);
         DbVersionCtlContext context = null;
+        MigrationLock heldLock = null;
+        Throwable error = null;
         try {
+            // 准备JDBC操作工具
+            JdbcUtil jdbcUtil = createJdbcUtil();
             // 准备上下文对象
             context = new DbVersionCtlContext(
                     this.dbVersionCtlProps,
                     jdbcUtil);
+            context.setListeners(runListeners);
+            DbVersionCtlStatistics statistics = context.getStatistics();
+            this.lastStatistics = statistics;
+
+            // 检查sql脚本集合指纹，与上次成功执行时一致则直接结束
+            String fingerprint = null;
+            context.setSqlScriptEntities(this.scannedScripts);
+            if ("y".equals(this.dbVersionCtlProps.getFingerprintCheck())) {
+                long start = System.nanoTime();
+                List<SQLScriptEntity> sqlScriptEntities = this.scannedScripts;
+                if (sqlScriptEntities == null) {
+                    sqlScriptEntities = new SQLScriptScanner(this.dbVersionCtlProps).scan();
+                    context.setSqlScriptEntities(sqlScriptEntities);
+                    statistics.addPhaseNanos(Phase.DISCOVERY, System.nanoTime() - start);
+                }
+                start = System.nanoTime();
+                fingerprint = ScriptSetFingerprint.of(sqlScriptEntities);
+                boolean unchanged = checkFingerprintUnchanged(context, fingerprint);
+                statistics.addPhaseNanos(Phase.FINGERPRINT_CHECK, System.nanoTime() - start);
+                if (unchanged) {
+                    statistics.setFingerprintHit(true);
+                    logger.info("sql脚本集合指纹未变化, 数据库版本已是最新. fingerprint: {}", fingerprint);
+                    return;
+                }
+            }
+
+            // 获取集群互斥锁；等待期间持有锁的实例可能已经完成升级，取得锁后再次检查sql脚本集合指纹
+            MigrationLock migrationLock = createMigrationLock();
+            if (migrationLock != null) {
+                long start = System.nanoTime();
+                acquireMigrationLock(context, migrationLock);
+                heldLock = migrationLock;
+                statistics.addPhaseNanos(Phase.LOCK_WAIT, System.nanoTime() - start);
+                if (fingerprint != null && checkFingerprintUnchanged(context, fingerprint)) {
+                    statistics.setFingerprintHit(true);
+                    logger.info("取得集群互斥锁后sql脚本集合指纹未变化, 数据库版本已由其他实例升级. fingerprint: {}", fingerprint);
+                    return;
+                }
+            }
 
             // 判断本次数据库版本控制的操作模式
+            long start = System.nanoTime();
             OperationMode operationMode = chargeOperationMode(jdbcUtil);
+            statistics.addPhaseNanos(Phase.MODE_DETECTION, System.nanoTime() - start);
+            statistics.setOperationMode(operationMode.name());
 
             // 根据操作模式组装任务链
             assemblyTaskChain(context, operationMode);
 
             // 启动任务链
             context.pollTask().doMyWork();
+
+            // 任务链成功结束后记录本次sql脚本集合指纹
+            if (fingerprint != null) {
+                saveFingerprint(context, fingerprint);
+            }
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
         } finally {
+            // 释放集群互斥锁
+            if (heldLock != null) {
+                releaseMigrationLock(context, heldLock);
+            }
             // 关闭JDBC连接与连接池
+            Optional.ofNullable(context).ifPresent(ctx -> ctx.getStatistics().setStatementCache(
+                    ctx.getJdbcUtil().getStatementCacheHits(), ctx.getJdbcUtil().getStatementCacheMisses()));
+            Optional.ofNullable(context).ifPresent(DbVersionCtlContext::closeGcJdbcUtil);
+            Optional.ofNullable(context).ifPresent(ctx -> ctx.getStatistics().setTotalNanos(System.nanoTime() - runStart));
+            runListeners.onRunEnd(context == null ? null : context.getStatistics(), error);
+        }
+
+    }
+
+    /**
+     * 设置预先查找好的sql脚本对象集合，执行时不再自行查找
+     *
+     * @param scannedScripts sql脚本对象集合
+     */
+    void setScannedScripts(List<SQLScriptEntity> scannedScripts) {
+        this.scannedScripts = scannedScripts;
+    }
+
+    /**
+     * 注册数据库版本控制监听器
+     *
+     * <p>在下一次{@link #doDBVersionControl()}开始时生效。</p>
+     *
+     * @param listener 数据库版本控制监听器
+     * @return 本对象
+     */
+    public DbVersionCtl addListener(DbVersionCtlListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener));
+        return this;
+    }
+
+    /**
+     * 注销数据库版本控制监听器
+     *
+     * @param listener 数据库版本控制监听器
+     */
+    public void removeListener(DbVersionCtlListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * 获取最近一次{@link #doDBVersionControl()}的执行统计
+     *
+     * @return 执行统计，尚未执行时为null
+     */
+    public DbVersionCtlStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    /**
+     * 校验已成功执行的sql脚本是否在执行后被修改过
+     *
+     * <p>1. 查找当前所有sql脚本，查询数据库版本控制表中已成功执行的sql脚本记录</p>
+     * <p>2. 并行计算脚本内容摘要并与记录中的摘要比对：文件系统中的脚本按文件字节数与最后修改时间使用摘要缓存，
+     * 带脚本清单的classpath脚本直接使用清单中的摘要</p>
+     * <p>该操作只读取数据库，不会修改数据库。</p>
+     *
+     * @return 校验结果
+     */
+    public ValidateResult validate() {
+        List<SQLScriptEntity> sqlScriptEntities = new SQLScriptScanner(this.dbVersionCtlProps).scan();
+        List<DbVersionEntity> appliedScripts = queryAppliedScripts();
+
+        Map<String, SQLScriptEntity> scriptsByVersion = sqlScriptEntities.stream()
+                .collect(Collectors.toMap(SQLScriptEntity::getVersion, Function.identity(), (a, b) -> a));
+        String digestCacheFile = this.dbVersionCtlProps.getDigestCacheFile();
+        DigestCache digestCache = digestCacheFile.isBlank() ? new DigestCache() : DigestCache.load(Paths.get(digestCacheFile));
+
+        ValidateResult result = new ValidateResult();
+        List<DbVersionEntity> toCheck = new ArrayList<>();
+        for (DbVersionEntity applied : appliedScripts) {
+            if ("none".equals(applied.getScriptDigestHex())) {
+                result.setUncheckedCount(result.getUncheckedCount() + 1);
+            } else if (!scriptsByVersion.containsKey(applied.getVersion())) {
+                result.getMissingVersions().add(applied.getVersion());
+            } else {
+                toCheck.add(applied);
+            }
+        }
+        // 摘要计算相互独立，并行执行
+        result.getMismatches().addAll(toCheck.parallelStream()
+                .map(applied -> {
+                    SQLScriptEntity sqlScriptEntity = scriptsByVersion.get(applied.getVersion());
+                    String actual = digestOf(sqlScriptEntity, digestCache);
+                    return actual.equals(applied.getScriptDigestHex()) ? null
+                            : new ValidateResult.Mismatch(applied.getVersion(), sqlScriptEntity.getFileName(), applied.getScriptDigestHex(), actual);
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        result.setCheckedCount(toCheck.size());
+        if (!digestCacheFile.isBlank()) {
+            digestCache.save(Paths.get(digestCacheFile));
+        }
+        logger.info("sql脚本校验结束, 比对: {} , 无摘要: {} , 不一致: {} , 缺失: {} .", result.getCheckedCount(),
+                result.getUncheckedCount(), result.getMismatches().size(), result.getMissingVersions().size());
+        return result;
+    }
+
+    /**
+     * 按外部数据源或配置属性创建JDBC操作工具
+     *
+     * @return JDBC操作工具
+     */
+    JdbcUtil createJdbcUtil() {
+        JdbcUtil jdbcUtil;
+        if (this.dataSource != null) {
+            jdbcUtil = new JdbcUtil(this.dataSource);
+        } else {
+            jdbcUtil = new JdbcUtil(this.dbVersionCtlProps.getDriverClassName(),
+                    this.dbVersionCtlProps.getUrl(),
+                    this.dbVersionCtlProps.getUsername(),
+                    this.dbVersionCtlProps.getPassword(),
+                    this.dbVersionCtlProps.makePoolProperties());
+        }
+        jdbcUtil.setStatementCacheSize(this.dbVersionCtlProps.getStatementCacheSize());
+        DdlPolicy ddlPolicy = new DdlPolicy(this.dbVersionCtlProps.getDdlLockWaitSeconds(),
+                this.dbVersionCtlProps.getDdlRetrySeconds(),
+                "y".equals(this.dbVersionCtlProps.getDdlOnlineAlter()));
+        if (ddlPolicy.isEnabled()) {
+            jdbcUtil.setDdlPolicy(ddlPolicy);
+        }
+        return jdbcUtil;
+    }
+
+    private List<DbVersionEntity> queryAppliedScripts() {
+        JdbcUtil jdbcUtil = createJdbcUtil();
+        DbVersionCtlContext context = null;
+        try {
+            context = new DbVersionCtlContext(this.dbVersionCtlProps, jdbcUtil);
+            List<DbVersionEntity> appliedScripts = new ArrayList<>();
+            jdbcUtil.getRunner().query(context.getConnection(), context.makeAppliedScriptSelectSql(), resultSet -> {
+                while (resultSet.next()) {
+                    DbVersionEntity dbVersionEntity = new DbVersionEntity();
+                    dbVersionEntity.setBusinessSpace(resultSet.getString("business_space"));
+                    dbVersionEntity.setVersion(resultSet.getString("version"));
+                    dbVersionEntity.setScriptFileName(resultSet.getString("script_file_name"));
+                    dbVersionEntity.setScriptDigestHex(resultSet.getString("script_digest_hex"));
+                    appliedScripts.add(dbVersionEntity);
+                }
+                return null;
+            });
+            return appliedScripts;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
             Optional.ofNullable(context).ifPresent(DbVersionCtlContext::closeGcJdbcUtil);
         }
+    }
+
+    private String digestOf(SQLScriptEntity sqlScriptEntity, DigestCache digestCache) {
+        ScriptSource scriptSource = sqlScriptEntity.getScriptSource();
+        if (scriptSource.getPath() != null) {
+            return digestCache.digestHex(scriptSource.getPath(), scriptSource.getCodec());
+        }
+        if (sqlScriptEntity.getScriptDigestHex() != null) {
+            return sqlScriptEntity.getScriptDigestHex();
+        }
+        try (InputStream inputStream = scriptSource.openScriptStream()) {
+            return DigestUtil.digestHex(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean checkFingerprintUnchanged(DbVersionCtlContext context, String fingerprint) {
+        if ("y".equals(this.dbVersionCtlProps.getBaselineReset()) || "y".equalsIgnoreCase(this.dbVersionCtlProps.getModifyDbVersionTable())) {
+            // 需要重置基线或修改版本控制表时，总是执行完整流程
+            return false;
+        }
+        try {
+            String savedFingerprint = context.getJdbcUtil().getRunner().query(context.getConnection(),
+                    context.makeFingerprintSelectSql(),
+                    resultSet -> resultSet.next() ? resultSet.getString(1) : null);
+            return fingerprint.equals(savedFingerprint);
+        } catch (SQLException e) {
+            // 数据库版本控制表不存在等情况，执行完整流程
+            logger.debug("sql脚本集合指纹查询失败, 执行完整流程. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void saveFingerprint(DbVersionCtlContext context, String fingerprint) {
+        String installTime = DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(LocalDateTime.now());
+        String installUser = context.getInstallUser();
+        try {
+            context.getJdbcUtil().execute(context.getConnection(), context.makeFingerprintTableCreateSql());
+            int updated = context.getJdbcUtil().getRunner().update(context.getConnection(),
+                    context.makeFingerprintUpdateSql(), fingerprint, installTime, installUser);
+            if (updated == 0) {
+                context.getJdbcUtil().getRunner().update(context.getConnection(),
+                        context.makeFingerprintInsertSql(), fingerprint, installTime, installUser);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        logger.info("sql脚本集合指纹记录更新. fingerprint: {}", fingerprint);
+    }
+
+    private MigrationLock createMigrationLock() {
+        return switch (this.dbVersionCtlProps.getMigrationLock()) {
+            case "get_lock" -> new AdvisoryMigrationLock(this.dbVersionCtlProps.getDbVersionTableName());
+            case "table" -> new TableMigrationLock(this.dbVersionCtlProps.getDbVersionTableName());
+            default -> null;
+        };
+    }
+
+    /**
+     * 获取集群互斥锁，其他实例持有锁时按指数退避(带随机抖动)重试，超过[migrationLockWaitSeconds]时抛出异常
+     */
+    private void acquireMigrationLock(DbVersionCtlContext context, MigrationLock migrationLock) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(this.dbVersionCtlProps.getMigrationLockWaitSeconds());
+        long backoff = LOCK_BACKOFF_INITIAL_MILLIS;
+        int attempts = 0;
+        try {
+            while (!migrationLock.tryAcquire(context.getConnection())) {
+                attempts++;
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new RuntimeException("Wait for migration lock timeout after " + this.dbVersionCtlProps.getMigrationLockWaitSeconds()
+                            + " seconds! " + migrationLock);
+                }
+                if (attempts == 1) {
+                    logger.info("集群互斥锁已被其他实例持有, 等待中... {}", migrationLock);
+                }
+                // 随机抖动避免多个实例同时重试
+                long sleepMillis = Math.min(remainingMillis, backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                Thread.sleep(sleepMillis);
+                backoff = Math.min(backoff * 2, LOCK_BACKOFF_MAX_MILLIS);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        logger.info("取得集群互斥锁, 重试次数: {} . {}", attempts, migrationLock);
+    }
 
+    private void releaseMigrationLock(DbVersionCtlContext context, MigrationLock migrationLock) {
+        try {
+            migrationLock.release(context.getConnection());
+            logger.info("释放集群互斥锁. {}", migrationLock);
+        } catch (SQLException e) {
+            // 用户级锁在连接关闭时会自动释放；锁表的锁行残留时需要人工删除
+            logger.warn("集群互斥锁释放失败. {} {}", migrationLock, e.getMessage());
+        }
     }
 
     private void assemblyTaskChain(DbVersionCtlContext context, OperationMode operationMode) {
@@ -91,14 +457,17 @@ public class DbVersionCtl {
     }
 
     private OperationMode chargeOperationMode(JdbcUtil jdbcUtil) {
-        // 判断当前database是否非空
+        // 判断当前database是否非空，footprint自身的锁表、语句日志表与指纹表不计入
         List<String> tblNames = queryExistTblNames(jdbcUtil);
+        String dbVersionTableName = this.dbVersionCtlProps.getDbVersionTableName();
+        tblNames.removeIf(tblName -> tblName.equalsIgnoreCase(dbVersionTableName + TableMigrationLock.LOCK_TABLE_SUFFIX)
+                || tblName.equalsIgnoreCase(dbVersionTableName + DbVersionCtlContext.STATEMENT_LOG_TABLE_SUFFIX)
+                || tblName.equalsIgnoreCase(dbVersionTableName + DbVersionCtlContext.FINGERPRINT_TABLE_SUFFIX));
         if (tblNames.isEmpty()) {
             // 当前database为空，首次启动服务，导入全部数据库脚本，并创建数据库版本控制表，并生成数据库版本记录。
             return OperationMode.DEPLOY_INIT;
         } else {
             // 如果当前database非空，判断是否已经创建了数据库版本控制表"brood_db_version_ctl"
-            final String dbVersionTableName = this.dbVersionCtlProps.getDbVersionTableName();
             if (tblNames.stream().anyMatch(dbVersionTableName::equals)) {
                 // 判断是否需要重置数据库版本控制表
                 if ("y".equals(this.dbVersionCtlProps.getBaselineReset())
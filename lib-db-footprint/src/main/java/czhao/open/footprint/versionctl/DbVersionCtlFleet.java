@@ -0,0 +1,203 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.utils.JdbcUtil;
+import czhao.open.footprint.utils.SchemaSwitchingDataSource;
+import czhao.open.footprint.versionctl.entity.FleetTenantResult;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多租户数据库版本控制器
+ *
+ * <p>对多个租户数据库(或同一数据库服务上的多个schema)执行同一套sql脚本的数据库版本控制：</p>
+ * <p>1. sql脚本只查找一次，所有租户共用查找结果；</p>
+ * <p>2. 以[parallelism]个工作线程并行执行各个租户，每个租户的执行与单独使用{@link DbVersionCtl}相同；</p>
+ * <p>3. 通过{@link #addSchemaTenants(Collection)}添加的schema租户共用一个按配置属性创建的连接池，每次取得连接时切换到租户的schema；
+ * 通过{@link #addTenant(String, DataSource)}添加的租户使用各自的外部数据源，可以由调用方自行共用
+ * (如以{@link SchemaSwitchingDataSource}包装同一个连接池)；</p>
+ * <p>schema租户的共用连接池基于commons-dbcp 1.x，只能通过Connection.setCatalog切换，适用于MySQL；其他数据库请使用外部数据源的租户。</p>
+ * <p>4. 单个租户失败不影响其他租户，执行结束后返回每个租户的结果与耗时。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DbVersionCtlFleet {
+    private static final Logger logger = LoggerFactory.getLogger(DbVersionCtlFleet.class);
+
+    /**
+     * 数据库版本控制配置属性集，所有租户共用；schema租户的共用连接池按其中的JDBC连接参数创建
+     */
+    private final DbVersionCtlProps dbVersionCtlProps;
+
+    /**
+     * 并行执行的租户数
+     */
+    private final int parallelism;
+
+    /**
+     * 使用外部数据源的租户，租户名 -> 数据源
+     */
+    private final Map<String, DataSource> dataSourceTenants = new LinkedHashMap<>();
+
+    /**
+     * 共用连接池的schema租户
+     */
+    private final Set<String> schemaTenants = new LinkedHashSet<>();
+
+    /**
+     * 注册到每个租户的数据库版本控制监听器
+     */
+    private final List<DbVersionCtlListener> listeners = new ArrayList<>();
+
+    /**
+     * DbVersionCtlFleet构造方法
+     *
+     * @param dbVersionCtlProps 数据库版本控制配置属性集
+     * @param parallelism       并行执行的租户数，至少为1
+     */
+    public DbVersionCtlFleet(DbVersionCtlProps dbVersionCtlProps, int parallelism) {
+        if (parallelism < 1) {
+            throw new RuntimeException("DbVersionCtlFleet.parallelism must be positive!");
+        }
+        this.dbVersionCtlProps = dbVersionCtlProps;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 添加使用外部数据源的租户
+     *
+     * @param tenant     租户名，不可重复
+     * @param dataSource 租户的数据源，执行结束后不会被关闭
+     * @return 本对象
+     */
+    public DbVersionCtlFleet addTenant(String tenant, DataSource dataSource) {
+        checkTenant(tenant);
+        this.dataSourceTenants.put(tenant, Objects.requireNonNull(dataSource));
+        return this;
+    }
+
+    /**
+     * 添加共用连接池的schema租户，租户名即schema名
+     *
+     * @param schemas schema集合，不可重复
+     * @return 本对象
+     */
+    public DbVersionCtlFleet addSchemaTenants(Collection<String> schemas) {
+        for (String schema : schemas) {
+            checkTenant(schema);
+            this.schemaTenants.add(schema);
+        }
+        return this;
+    }
+
+    /**
+     * 注册数据库版本控制监听器，回调来自所有租户的执行线程
+     *
+     * @param listener 数据库版本控制监听器
+     * @return 本对象
+     */
+    public DbVersionCtlFleet addListener(DbVersionCtlListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener));
+        return this;
+    }
+
+    private void checkTenant(String tenant) {
+        if (tenant == null || tenant.isBlank()) {
+            throw new RuntimeException("DbVersionCtlFleet tenant is empty!");
+        }
+        if (this.dataSourceTenants.containsKey(tenant) || this.schemaTenants.contains(tenant)) {
+            throw new RuntimeException("DbVersionCtlFleet tenant " + tenant + " is duplicated!");
+        }
+    }
+
+    /**
+     * 对所有租户执行数据库版本控制
+     *
+     * @return 每个租户的执行结果，使用外部数据源的租户在前，schema租户在后，各自按添加的顺序
+     */
+    public List<FleetTenantResult> run() {
+        long start = System.nanoTime();
+        List<SQLScriptEntity> scannedScripts = new SQLScriptScanner(this.dbVersionCtlProps).scan();
+        long discoveryMillis = (System.nanoTime() - start) / 1_000_000;
+
+        JdbcUtil sharedPool = this.schemaTenants.isEmpty() ? null : createSharedPool();
+        Map<String, DataSource> tenants = new LinkedHashMap<>(this.dataSourceTenants);
+        if (sharedPool != null) {
+            this.schemaTenants.forEach(schema -> tenants.put(schema, new SchemaSwitchingDataSource(sharedPool.getDataSource(), schema)));
+        }
+        logger.info("多租户数据库版本控制开始, 租户数: {} , 并行数: {} , sql脚本数: {} , 查找耗时: {} ms.", tenants.size(), this.parallelism,
+                scannedScripts.size(), discoveryMillis);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, Math.max(1, tenants.size())), r -> {
+            Thread thread = new Thread(r, "footprint-fleet-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<FleetTenantResult>> futures = new ArrayList<>();
+            for (Map.Entry<String, DataSource> tenant : tenants.entrySet()) {
+                futures.add(executor.submit(() -> runTenant(tenant.getKey(), tenant.getValue(), scannedScripts)));
+            }
+            List<FleetTenantResult> results = new ArrayList<>();
+            for (Future<FleetTenantResult> future : futures) {
+                results.add(future.get());
+            }
+            long failed = results.stream().filter(result -> !result.isSuccess()).count();
+            logger.info("多租户数据库版本控制结束, 租户数: {} , 失败: {} , 耗时: {} ms.", results.size(), failed,
+                    (System.nanoTime() - start) / 1_000_000);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (sharedPool != null) {
+                sharedPool.close();
+            }
+        }
+    }
+
+    private FleetTenantResult runTenant(String tenant, DataSource dataSource, List<SQLScriptEntity> scannedScripts) {
+        long start = System.nanoTime();
+        DbVersionCtl dbVersionCtl = new DbVersionCtl(this.dbVersionCtlProps, dataSource);
+        dbVersionCtl.setScannedScripts(scannedScripts);
+        this.listeners.forEach(dbVersionCtl::addListener);
+        Throwable error = null;
+        try {
+            dbVersionCtl.doDBVersionControl();
+        } catch (RuntimeException | Error e) {
+            error = e;
+            logger.error("租户 {} 数据库版本控制失败.", tenant, e);
+        }
+        return new FleetTenantResult(tenant, error, (System.nanoTime() - start) / 1_000_000, dbVersionCtl.getLastStatistics());
+    }
+
+    /**
+     * 创建schema租户共用的连接池
+     *
+     * <p>每个租户与单独使用{@link DbVersionCtl}时一样最多同时占用{@link DbVersionCtlProps#makeMaxConnections()}个连接
+     * (包括脚本内并发执行的工作连接)，最大连接数至少为其与并行租户数之积。</p>
+     */
+    private JdbcUtil createSharedPool() {
+        Properties poolProperties = this.dbVersionCtlProps.makePoolProperties();
+        int perTenant = this.dbVersionCtlProps.makeMaxConnections();
+        int maxActive = Math.max(Integer.parseInt(poolProperties.getProperty("maxActive")), this.parallelism * perTenant);
+        poolProperties.setProperty("maxActive", String.valueOf(maxActive));
+        poolProperties.setProperty("maxIdle", String.valueOf(maxActive));
+        return new JdbcUtil(this.dbVersionCtlProps.getDriverClassName(),
+                this.dbVersionCtlProps.getUrl(),
+                this.dbVersionCtlProps.getUsername(),
+                this.dbVersionCtlProps.getPassword(),
+                poolProperties);
+    }
+}
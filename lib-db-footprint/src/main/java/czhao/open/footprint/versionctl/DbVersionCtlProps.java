@@ -1,7 +1,11 @@
 package czhao.open.footprint.versionctl;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -11,6 +15,11 @@ import java.util.stream.Collectors;
  */
 @SuppressWarnings("unused")
 public class DbVersionCtlProps {
+    // 支持的事务隔离级别
+    private static final Set<String> TRANSACTION_ISOLATIONS = Set.of("NONE", "READ_UNCOMMITTED", "READ_COMMITTED", "REPEATABLE_READ", "SERIALIZABLE");
+    // 支持的集群互斥锁类型
+    private static final Set<String> MIGRATION_LOCKS = Set.of("none", "get_lock", "table");
+
     // sql脚本资源类型，classpath/filesystem，默认classpath
     private ScriptResourceMode scriptResourceMode = ScriptResourceMode.CLASSPATH;
 
@@ -35,6 +44,17 @@ public class DbVersionCtlProps {
     // JDBC连接用户密码
     private String password;
 
+    // 连接池最大连接数，默认5；按业务空间并行执行时至少为[parallelWorkers]+1，开启脚本内并发执行时还会加上各业务空间的工作连接数
+    private int poolMaxActive = 5;
+    // 连接池初始连接数，默认1
+    private int poolInitialSize = 1;
+    // 从连接池获取连接的最长等待时间(毫秒)，默认0，即一直等待
+    private long poolMaxWait = 0;
+    // JDBC连接属性，格式为"[属性名]=[属性值];[属性名]=[属性值]"，例如:"useSSL=false;characterEncoding=utf8"
+    private String connectionProperties = "";
+    // 连接的事务隔离级别，默认"READ_COMMITTED"，支持NONE/READ_UNCOMMITTED/READ_COMMITTED/REPEATABLE_READ/SERIALIZABLE
+    private String transactionIsolation = "READ_COMMITTED";
+
     // 查看当前database所有表的sql，默认"show tables"
     private String existTblQuerySql = "show tables";
 
@@ -50,6 +70,69 @@ public class DbVersionCtlProps {
     // 修改DbVersionTable的SQL
     private String modifyDbVersionTableSqlPath = "classpath:db/versionctl/modify_brood_db_version_ctl.sql";
 
+    // 是否按业务空间并行执行增量sql脚本，默认"n"
+    // 开启后每个业务空间使用连接池中各自的JDBC连接执行，同一业务空间内的脚本仍按版本顺序执行。
+    private String parallelBusinessSpace = "n";
+    // 按业务空间并行执行时的工作线程数，默认4，不宜超过连接池可用的连接数
+    private int parallelWorkers = 4;
+    // 业务空间之间的执行顺序依赖，多个时用","连接，格式为"[业务空间]:[被依赖的业务空间]|[被依赖的业务空间]"。
+    // 例如:"template:smtp,sentry:raven|smtp"，表示template须等待smtp执行完毕后才开始执行。
+    private String businessSpaceDependencies = "";
+
+    // 增量sql脚本中连续DML语句的批量执行批次大小，默认0，即不使用批量执行
+    private int batchSize = 0;
+    // 是否根据观测到的执行耗时自动调整批次大小，默认"n"
+    private String batchAdaptive = "n";
+    // 单个sql脚本内按表依赖关系并发执行语句的工作连接数，默认0，即按顺序执行
+    // 大于1时读写不同表的语句在多个连接中并发执行，读写相同表的语句保持脚本中的顺序；开启后不使用批量执行。
+    private int statementWorkers = 0;
+    // 是否将连续的单行INSERT语句合并为多行INSERT语句执行，默认"n"
+    // 开启后向同一张表的同一字段列表插入单行数据的连续INSERT语句合并为一条，适用于大量单行INSERT的初期数据脚本。
+    private String insertCoalesce = "n";
+    // 合并后单条INSERT语句的最大字节数，默认1048576(1MB)，应小于数据库的max_allowed_packet
+    private int insertCoalesceMaxBytes = 1024 * 1024;
+    // 每个JDBC连接最多缓存的PreparedStatement数，默认0，即不缓存
+    // 开启后逐条执行的DML语句与数据库版本记录的插入、更新按SQL文复用PreparedStatement，脚本中重复出现的语句不再重新创建。
+    private int statementCacheSize = 0;
+    // CSV数据导入脚本的批量插入批次大小，默认1000
+    private int csvBatchSize = 1000;
+    // CSV数据导入脚本是否使用MySQL的LOAD DATA LOCAL INFILE导入，默认"n"，即使用批量INSERT
+    // 开启后须在JDBC连接参数中设置allowLoadLocalInfile=true，且数据库开启local_infile；驱动不支持时使用批量INSERT。
+    private String csvLoadData = "n";
+    // 执行DDL语句时会话的lock_wait_timeout(秒)，默认0，即不修改(MySQL默认31536000秒)
+    // 设置后单条DDL等待元数据锁最多阻塞该表上的业务查询该时间，超时后报错或按ddlRetrySeconds重试，执行后恢复原值；仅支持MySQL。
+    private int ddlLockWaitSeconds = 0;
+    // DDL语句等待元数据锁超时(错误码1205)后的重试时间(秒)，默认0，即不重试
+    // 在该时间内按指数退避(带随机抖动)重试，重试间隔期间业务查询正常执行。
+    private int ddlRetrySeconds = 0;
+    // 是否为没有指定ALGORITHM与LOCK的ALTER TABLE与CREATE INDEX加上"ALGORITHM=INPLACE, LOCK=NONE"，默认"n"
+    // 开启后不支持在线变更的操作直接报错，而不是锁表执行；仅支持MySQL。
+    private String ddlOnlineAlter = "n";
+
+    // 是否检查sql脚本集合指纹，默认"n"
+    // 开启后每次成功执行后在指纹表"[dbVersionTableName]_fingerprint"中记录本次sql脚本集合的指纹，下次启动时指纹一致则直接结束，不再组装任务链。
+    private String fingerprintCheck = "n";
+
+    // 校验sql脚本时使用的摘要缓存文件路径，默认""，即不使用缓存文件
+    // 文件系统中的脚本按文件字节数与最后修改时间缓存摘要，未变化的脚本不再重新计算摘要。
+    private String digestCacheFile = "";
+
+    // 是否记录每条SQL语句的执行日志，默认"n"
+    // 开启后在数据库版本管理表旁创建语句日志表"[dbVersionTableName]_stmt_log"，记录增量sql脚本中每条语句的序号、归一化指纹、耗时与影响行数。
+    private String statementLog = "n";
+    // 语句日志的批量写入批次大小，默认500
+    private int statementLogBatchSize = 500;
+
+    // 集群互斥锁类型，默认"none"，即不加锁；支持"get_lock"(MySQL用户级锁)与"table"(锁表"[dbVersionTableName]_lock")
+    // 开启后在判断操作模式之前获取锁，多个服务实例同时启动时只有一个实例执行任务链，其他实例等待后再检查。
+    private String migrationLock = "none";
+    // 等待集群互斥锁的最长时间(秒)，默认600，超时后本次执行失败
+    private int migrationLockWaitSeconds = 600;
+
+    // 监视模式下脚本目录变化的合并等待时间(毫秒)，默认500
+    // 最后一次变化后经过该时间没有新的变化，才执行新增的sql脚本，避免复制多个脚本或脚本尚未写完时就开始执行。
+    private int watchDebounceMillis = 500;
+
     public ScriptResourceMode getScriptResourceMode() {
         return scriptResourceMode;
     }
@@ -130,6 +213,56 @@ public class DbVersionCtlProps {
         this.password = password;
     }
 
+    public int getPoolMaxActive() {
+        return poolMaxActive;
+    }
+
+    public void setPoolMaxActive(int poolMaxActive) {
+        if (poolMaxActive > 0) {
+            this.poolMaxActive = poolMaxActive;
+        }
+    }
+
+    public int getPoolInitialSize() {
+        return poolInitialSize;
+    }
+
+    public void setPoolInitialSize(int poolInitialSize) {
+        if (poolInitialSize >= 0) {
+            this.poolInitialSize = poolInitialSize;
+        }
+    }
+
+    public long getPoolMaxWait() {
+        return poolMaxWait;
+    }
+
+    public void setPoolMaxWait(long poolMaxWait) {
+        if (poolMaxWait >= 0) {
+            this.poolMaxWait = poolMaxWait;
+        }
+    }
+
+    public String getConnectionProperties() {
+        return connectionProperties;
+    }
+
+    public void setConnectionProperties(String connectionProperties) {
+        if (connectionProperties != null && !connectionProperties.isBlank()) {
+            this.connectionProperties = connectionProperties.strip();
+        }
+    }
+
+    public String getTransactionIsolation() {
+        return transactionIsolation;
+    }
+
+    public void setTransactionIsolation(String transactionIsolation) {
+        if (transactionIsolation != null && TRANSACTION_ISOLATIONS.contains(transactionIsolation.strip().toUpperCase())) {
+            this.transactionIsolation = transactionIsolation.strip().toUpperCase();
+        }
+    }
+
     public String getExistTblQuerySql() {
         return existTblQuerySql;
     }
@@ -180,6 +313,277 @@ public class DbVersionCtlProps {
         }
     }
 
+    public String getParallelBusinessSpace() {
+        return parallelBusinessSpace;
+    }
+
+    public void setParallelBusinessSpace(String parallelBusinessSpace) {
+        if ("y".equalsIgnoreCase(parallelBusinessSpace)) {
+            this.parallelBusinessSpace = "y";
+        }
+    }
+
+    public int getParallelWorkers() {
+        return parallelWorkers;
+    }
+
+    public void setParallelWorkers(int parallelWorkers) {
+        if (parallelWorkers > 0) {
+            this.parallelWorkers = parallelWorkers;
+        }
+    }
+
+    public String getBusinessSpaceDependencies() {
+        return businessSpaceDependencies;
+    }
+
+    public void setBusinessSpaceDependencies(String businessSpaceDependencies) {
+        if (businessSpaceDependencies != null && !businessSpaceDependencies.isBlank()) {
+            this.businessSpaceDependencies = businessSpaceDependencies.strip();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize >= 0) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    public int getStatementWorkers() {
+        return statementWorkers;
+    }
+
+    public void setStatementWorkers(int statementWorkers) {
+        if (statementWorkers >= 0) {
+            this.statementWorkers = statementWorkers;
+        }
+    }
+
+    public String getBatchAdaptive() {
+        return batchAdaptive;
+    }
+
+    public void setBatchAdaptive(String batchAdaptive) {
+        if ("y".equalsIgnoreCase(batchAdaptive)) {
+            this.batchAdaptive = "y";
+        }
+    }
+
+    public String getInsertCoalesce() {
+        return insertCoalesce;
+    }
+
+    public void setInsertCoalesce(String insertCoalesce) {
+        if ("y".equalsIgnoreCase(insertCoalesce)) {
+            this.insertCoalesce = "y";
+        }
+    }
+
+    public int getInsertCoalesceMaxBytes() {
+        return insertCoalesceMaxBytes;
+    }
+
+    public void setInsertCoalesceMaxBytes(int insertCoalesceMaxBytes) {
+        if (insertCoalesceMaxBytes > 0) {
+            this.insertCoalesceMaxBytes = insertCoalesceMaxBytes;
+        }
+    }
+
+    public int getCsvBatchSize() {
+        return csvBatchSize;
+    }
+
+    public void setCsvBatchSize(int csvBatchSize) {
+        if (csvBatchSize > 0) {
+            this.csvBatchSize = csvBatchSize;
+        }
+    }
+
+    public String getCsvLoadData() {
+        return csvLoadData;
+    }
+
+    public void setCsvLoadData(String csvLoadData) {
+        if ("y".equalsIgnoreCase(csvLoadData)) {
+            this.csvLoadData = "y";
+        }
+    }
+
+    public int getDdlLockWaitSeconds() {
+        return ddlLockWaitSeconds;
+    }
+
+    public void setDdlLockWaitSeconds(int ddlLockWaitSeconds) {
+        if (ddlLockWaitSeconds >= 0) {
+            this.ddlLockWaitSeconds = ddlLockWaitSeconds;
+        }
+    }
+
+    public int getDdlRetrySeconds() {
+        return ddlRetrySeconds;
+    }
+
+    public void setDdlRetrySeconds(int ddlRetrySeconds) {
+        if (ddlRetrySeconds >= 0) {
+            this.ddlRetrySeconds = ddlRetrySeconds;
+        }
+    }
+
+    public String getDdlOnlineAlter() {
+        return ddlOnlineAlter;
+    }
+
+    public void setDdlOnlineAlter(String ddlOnlineAlter) {
+        if ("y".equalsIgnoreCase(ddlOnlineAlter)) {
+            this.ddlOnlineAlter = "y";
+        }
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize >= 0) {
+            this.statementCacheSize = statementCacheSize;
+        }
+    }
+
+    public String getFingerprintCheck() {
+        return fingerprintCheck;
+    }
+
+    public void setFingerprintCheck(String fingerprintCheck) {
+        if ("y".equalsIgnoreCase(fingerprintCheck)) {
+            this.fingerprintCheck = "y";
+        }
+    }
+
+    public String getDigestCacheFile() {
+        return digestCacheFile;
+    }
+
+    public void setDigestCacheFile(String digestCacheFile) {
+        if (digestCacheFile != null && !digestCacheFile.isBlank()) {
+            this.digestCacheFile = digestCacheFile.strip();
+        }
+    }
+
+    public String getStatementLog() {
+        return statementLog;
+    }
+
+    public void setStatementLog(String statementLog) {
+        if ("y".equalsIgnoreCase(statementLog)) {
+            this.statementLog = "y";
+        }
+    }
+
+    public int getStatementLogBatchSize() {
+        return statementLogBatchSize;
+    }
+
+    public void setStatementLogBatchSize(int statementLogBatchSize) {
+        if (statementLogBatchSize > 0) {
+            this.statementLogBatchSize = statementLogBatchSize;
+        }
+    }
+
+    public String getMigrationLock() {
+        return migrationLock;
+    }
+
+    public void setMigrationLock(String migrationLock) {
+        if (migrationLock != null && MIGRATION_LOCKS.contains(migrationLock.strip().toLowerCase())) {
+            this.migrationLock = migrationLock.strip().toLowerCase();
+        }
+    }
+
+    public int getMigrationLockWaitSeconds() {
+        return migrationLockWaitSeconds;
+    }
+
+    public void setMigrationLockWaitSeconds(int migrationLockWaitSeconds) {
+        if (migrationLockWaitSeconds >= 0) {
+            this.migrationLockWaitSeconds = migrationLockWaitSeconds;
+        }
+    }
+
+    public int getWatchDebounceMillis() {
+        return watchDebounceMillis;
+    }
+
+    public void setWatchDebounceMillis(int watchDebounceMillis) {
+        if (watchDebounceMillis >= 0) {
+            this.watchDebounceMillis = watchDebounceMillis;
+        }
+    }
+
+    /**
+     * 计算一次数据库版本控制最多同时占用的连接数
+     *
+     * <p>上下文占用一个连接，查询表清单或执行sql脚本还需要一个连接；按业务空间并行执行时，每个工作线程各占用一个连接。</p>
+     * <p>脚本内并发执行时，每个执行脚本的连接还各自占用[statementWorkers]个工作连接。</p>
+     *
+     * @return 最多同时占用的连接数
+     */
+    public int makeMaxConnections() {
+        int scriptConnections = "y".equals(this.parallelBusinessSpace) ? this.parallelWorkers : 1;
+        if (this.statementWorkers > 1) {
+            scriptConnections = scriptConnections * (this.statementWorkers + 1);
+        }
+        return scriptConnections + 1;
+    }
+
+    /**
+     * 生成连接池参数(commons-dbcp的属性名)
+     *
+     * <p>最大连接数至少为{@link #makeMaxConnections()}。</p>
+     *
+     * @return 连接池参数
+     */
+    public Properties makePoolProperties() {
+        int maxActive = Math.max(this.poolMaxActive, makeMaxConnections());
+        Properties properties = new Properties();
+        properties.setProperty("maxActive", String.valueOf(maxActive));
+        properties.setProperty("maxIdle", String.valueOf(maxActive));
+        properties.setProperty("initialSize", String.valueOf(Math.min(this.poolInitialSize, maxActive)));
+        properties.setProperty("maxWait", String.valueOf(this.poolMaxWait));
+        properties.setProperty("defaultTransactionIsolation", this.transactionIsolation);
+        if (!this.connectionProperties.isBlank()) {
+            properties.setProperty("connectionProperties", this.connectionProperties);
+        }
+        return properties;
+    }
+
+    /**
+     * 解析业务空间之间的执行顺序依赖
+     *
+     * @return 业务空间 -> 其依赖的业务空间集合
+     */
+    public Map<String, List<String>> makeBusinessSpaceDependencies() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (String bsAndDeps : this.businessSpaceDependencies.split(",")) {
+            if (bsAndDeps.isBlank()) {
+                continue;
+            }
+            String[] bsAndDepsArr = bsAndDeps.strip().split(":");
+            if (bsAndDepsArr.length != 2 || bsAndDepsArr[0].isBlank()) {
+                throw new RuntimeException("DbVersionCtlProps.businessSpaceDependencies format is not correct!");
+            }
+            List<String> deps = Arrays.stream(bsAndDepsArr[1].split("\\|"))
+                    .map(String::strip)
+                    .filter(s -> !s.isBlank())
+                    .collect(Collectors.toList());
+            dependencies.put(bsAndDepsArr[0].strip(), deps);
+        }
+        return dependencies;
+    }
+
     /**
      * 检查并获取SQL脚本目录集合
      *
@@ -0,0 +1,327 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.utils.ScriptSource;
+import czhao.open.footprint.versionctl.chain.DbVersionCtlContext;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics.Phase;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListener;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListeners;
+import czhao.open.footprint.versionctl.task.IncreaseVersionTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库版本控制监视器
+ *
+ * <p>用于开发与测试环境，监视文件系统中的sql脚本目录，新增的sql脚本不必重启服务即可执行：</p>
+ * <p>1. {@link #start()}先执行一次完整的{@link DbVersionCtl#doDBVersionControl()}，再在后台线程中通过WatchService监视[scriptDirs]；</p>
+ * <p>2. 目录发生变化后等待[watchDebounceMillis]，期间没有新的变化才处理，复制多个脚本或脚本尚未写完时不会提前执行；</p>
+ * <p>3. 只对本次新增或修改的sql脚本组装{@link IncreaseVersionTask}，版本号不高于数据库当前版本的脚本不会执行；
+ * 各次执行共用同一个JDBC连接与已知的各业务空间最新版本，不再重复查找全部脚本与查询版本控制表；</p>
+ * <p>4. 单次执行失败只记录日志，继续监视；修正后需要按常规方式处理失败的版本记录。</p>
+ * <p>只支持FILESYSTEM模式的脚本目录。监视期间的执行不获取集群互斥锁，也不更新sql脚本集合指纹，
+ * 下次启动时会因指纹不一致而执行一次完整的增量流程。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DbVersionCtlWatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DbVersionCtlWatcher.class);
+    // 复用JDBC连接前检查连接是否有效的超时时间(秒)
+    private static final int CONNECTION_VALID_TIMEOUT_SECONDS = 5;
+
+    /**
+     * 数据库版本控制配置属性集
+     */
+    private final DbVersionCtlProps dbVersionCtlProps;
+
+    /**
+     * 数据库版本控制器，用于首次的完整执行与创建JDBC操作工具
+     */
+    private final DbVersionCtl dbVersionCtl;
+
+    /**
+     * 数据库版本控制监听器，每次执行都会通知
+     */
+    private final List<DbVersionCtlListener> listeners = new CopyOnWriteArrayList<>();
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean running = false;
+
+    /**
+     * 监视期间共用的上下文，持有JDBC连接与已知的各业务空间最新版本；只在监视线程中使用
+     */
+    private DbVersionCtlContext context;
+
+    /**
+     * 最近一次执行的统计
+     */
+    private volatile DbVersionCtlStatistics lastStatistics;
+
+    /**
+     * DbVersionCtlWatcher构造方法
+     *
+     * @param dbVersionCtlProps 数据库版本控制配置属性集，[scriptResourceMode]须为FILESYSTEM
+     */
+    public DbVersionCtlWatcher(DbVersionCtlProps dbVersionCtlProps) {
+        this(dbVersionCtlProps, null);
+    }
+
+    /**
+     * DbVersionCtlWatcher构造方法
+     *
+     * @param dbVersionCtlProps 数据库版本控制配置属性集，[scriptResourceMode]须为FILESYSTEM
+     * @param dataSource        外部管理的数据源，为null时按配置属性创建连接池；监视期间一直占用其中一个连接
+     */
+    public DbVersionCtlWatcher(DbVersionCtlProps dbVersionCtlProps, DataSource dataSource) {
+        if (dbVersionCtlProps.getScriptResourceMode() != DbVersionCtlProps.ScriptResourceMode.FILESYSTEM) {
+            throw new RuntimeException("DbVersionCtlWatcher only supports FILESYSTEM scriptResourceMode!");
+        }
+        this.dbVersionCtlProps = dbVersionCtlProps;
+        this.dbVersionCtl = new DbVersionCtl(dbVersionCtlProps, dataSource);
+    }
+
+    /**
+     * 注册数据库版本控制监听器，须在{@link #start()}之前注册
+     *
+     * @param listener 数据库版本控制监听器
+     * @return 本对象
+     */
+    public DbVersionCtlWatcher addListener(DbVersionCtlListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener));
+        this.dbVersionCtl.addListener(listener);
+        return this;
+    }
+
+    /**
+     * 执行一次完整的数据库版本控制，然后开始在后台线程中监视sql脚本目录
+     *
+     * <p>完整执行失败时抛出异常，不会开始监视。</p>
+     */
+    public synchronized void start() {
+        if (this.watchThread != null) {
+            throw new RuntimeException("DbVersionCtlWatcher is already started!");
+        }
+        try {
+            // 先注册监视再执行，执行期间新增的脚本也会被处理
+            this.watchService = FileSystems.getDefault().newWatchService();
+            for (String scriptDirPath : this.dbVersionCtlProps.makeScriptDirPaths()) {
+                Path dir = Paths.get(scriptDirPath);
+                if (!Files.isDirectory(dir)) {
+                    throw new RuntimeException(scriptDirPath + " is not Filesystem Directory!");
+                }
+                dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            this.dbVersionCtl.doDBVersionControl();
+            this.lastStatistics = this.dbVersionCtl.getLastStatistics();
+        } catch (IOException e) {
+            closeWatchService();
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            closeWatchService();
+            throw e;
+        }
+        this.running = true;
+        this.watchThread = new Thread(this::watchLoop, "footprint-watch");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+        logger.info("开始监视sql脚本目录: {}", this.dbVersionCtlProps.makeScriptDirPaths());
+    }
+
+    /**
+     * 停止监视，等待正在进行的执行结束后关闭JDBC连接
+     */
+    @Override
+    public synchronized void close() {
+        if (this.watchThread == null) {
+            return;
+        }
+        this.running = false;
+        // 关闭WatchService会使阻塞在take/poll上的监视线程退出
+        closeWatchService();
+        try {
+            this.watchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.watchThread = null;
+        logger.info("停止监视sql脚本目录.");
+    }
+
+    /**
+     * @return 是否正在监视
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 获取最近一次执行的统计
+     *
+     * @return 执行统计，尚未执行时为null
+     */
+    public DbVersionCtlStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    private void watchLoop() {
+        try {
+            while (this.running) {
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = collectChanges(this.watchService.take(), changed);
+                // 合并连续的变化，直到[watchDebounceMillis]内没有新的变化
+                WatchKey key;
+                while ((key = this.watchService.poll(this.dbVersionCtlProps.getWatchDebounceMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collectChanges(key, changed);
+                }
+                if (overflow || !changed.isEmpty()) {
+                    try {
+                        applyChanges(changed, overflow);
+                    } catch (RuntimeException e) {
+                        // 重新查找脚本失败等情况，继续监视
+                        logger.error("sql脚本目录变化处理失败, 继续监视.", e);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close()停止监视
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.running = false;
+            Optional.ofNullable(this.context).ifPresent(DbVersionCtlContext::closeGcJdbcUtil);
+            this.context = null;
+        }
+    }
+
+    /**
+     * 收集一个WatchKey上的变化
+     *
+     * @return 是否发生了事件丢失(OVERFLOW)
+     */
+    private boolean collectChanges(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                Path path = dir.resolve((Path) event.context());
+                if (SQLScriptEntity.isScriptFileName(path.getFileName().toString())) {
+                    changed.add(path);
+                }
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    /**
+     * 执行变化的sql脚本中版本号高于数据库当前版本的脚本
+     *
+     * @param changed  新增或修改的sql脚本
+     * @param overflow 是否发生了事件丢失，丢失时重新查找全部脚本
+     */
+    private void applyChanges(Set<Path> changed, boolean overflow) {
+        long runStart = System.nanoTime();
+        DbVersionCtlStatistics statistics = new DbVersionCtlStatistics();
+        statistics.setOperationMode(DbVersionCtl.OperationMode.DEPLOY_INCREASE.name());
+        List<SQLScriptEntity> sqlScriptEntities;
+        if (overflow) {
+            logger.info("sql脚本目录变化事件丢失, 重新查找全部sql脚本.");
+            sqlScriptEntities = new SQLScriptScanner(this.dbVersionCtlProps).scan();
+        } else {
+            sqlScriptEntities = new ArrayList<>(changed.size());
+            for (Path path : changed) {
+                // 脚本被删除或重命名时忽略
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                try {
+                    sqlScriptEntities.add(new SQLScriptEntity(ScriptSource.of(path)));
+                } catch (RuntimeException e) {
+                    logger.warn("忽略文件名格式不正确的sql脚本: {}", path);
+                }
+            }
+        }
+        statistics.addPhaseNanos(Phase.DISCOVERY, System.nanoTime() - runStart);
+        if (sqlScriptEntities.isEmpty()) {
+            return;
+        }
+        logger.info("sql脚本目录发生变化, 检查sql脚本: {}", sqlScriptEntities.stream().map(SQLScriptEntity::getFileName).toList());
+
+        DbVersionCtlListeners runListeners = new DbVersionCtlListeners(this.listeners);
+        runListeners.onRunStart(this.dbVersionCtlProps);
+        this.lastStatistics = statistics;
+        Throwable error = null;
+        long cacheHits = 0;
+        long cacheMisses = 0;
+        try {
+            DbVersionCtlContext ctx = prepareContext();
+            cacheHits = ctx.getJdbcUtil().getStatementCacheHits();
+            cacheMisses = ctx.getJdbcUtil().getStatementCacheMisses();
+            ctx.setListeners(runListeners);
+            ctx.setStatistics(statistics);
+            ctx.setSqlScriptEntities(sqlScriptEntities);
+            ctx.offerTask(new IncreaseVersionTask(ctx));
+            ctx.pollTask().doMyWork();
+            logger.info("sql脚本目录变化处理结束, 执行脚本数: {} .", statistics.getExecutedScripts());
+        } catch (RuntimeException e) {
+            error = e;
+            // 失败的脚本可能已经写入版本记录，下次重新查询最新版本
+            Optional.ofNullable(this.context).ifPresent(ctx -> ctx.setLatestVersions(null));
+            logger.error("sql脚本目录变化处理失败, 继续监视.", e);
+        } finally {
+            // 监视期间共用JDBC操作工具，只统计本次执行的缓存命中
+            if (this.context != null) {
+                statistics.setStatementCache(this.context.getJdbcUtil().getStatementCacheHits() - cacheHits,
+                        this.context.getJdbcUtil().getStatementCacheMisses() - cacheMisses);
+            }
+            statistics.setTotalNanos(System.nanoTime() - runStart);
+            runListeners.onRunEnd(statistics, error);
+        }
+    }
+
+    /**
+     * 获取监视期间共用的上下文，JDBC连接失效(如超过数据库的空闲超时)时重新创建
+     */
+    private DbVersionCtlContext prepareContext() {
+        if (this.context != null) {
+            boolean valid;
+            try {
+                valid = this.context.getConnection().isValid(CONNECTION_VALID_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (valid) {
+                return this.context;
+            }
+            logger.info("JDBC连接已失效, 重新创建.");
+            this.context.closeGcJdbcUtil();
+            this.context = null;
+        }
+        this.context = new DbVersionCtlContext(this.dbVersionCtlProps, this.dbVersionCtl.createJdbcUtil());
+        return this.context;
+    }
+
+    private void closeWatchService() {
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                logger.warn("WatchService关闭失败. {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.versionctl.entity.DbVersionEntity;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+import java.util.*;
+
+/**
+ * SQL脚本目录
+ *
+ * <p>按业务空间划分sql脚本，每个业务空间的脚本按版本号升序保存在数组中，并附带压缩为long的版本键数组，
+ * 增量脚本的选取只需对版本键做一次二分查找，返回已排序数组的尾部视图，不必对全部脚本逐个比较再排序。</p>
+ * <p>业务空间内有版本号分量超过{@link SQLScriptEntity#MAX_PACKABLE_VERSION}的脚本时，
+ * 该业务空间改为使用{@link SQLScriptEntity#checkNeed}做二分查找，结果相同。</p>
+ * <p>目录构建后不可修改，可以在多个线程间共享。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class SQLScriptCatalog {
+    /**
+     * 空目录
+     */
+    public static final SQLScriptCatalog EMPTY = new SQLScriptCatalog(Collections.emptyMap(), 0);
+
+    // 业务空间 -> 该业务空间的已排序脚本，按业务空间首次出现的顺序保存
+    private final Map<String, Space> spaces;
+    // 脚本总数
+    private final int size;
+
+    private SQLScriptCatalog(Map<String, Space> spaces, int size) {
+        this.spaces = spaces;
+        this.size = size;
+    }
+
+    /**
+     * 根据sql脚本对象集合构建目录
+     *
+     * @param sqlScriptEntities sql脚本对象集合
+     * @return SQL脚本目录
+     */
+    public static SQLScriptCatalog of(Collection<SQLScriptEntity> sqlScriptEntities) {
+        if (sqlScriptEntities == null || sqlScriptEntities.isEmpty()) {
+            return EMPTY;
+        }
+        // 业务空间名称已经intern，分组时的哈希查找只需比较引用
+        Map<String, List<SQLScriptEntity>> grouped = new LinkedHashMap<>();
+        for (SQLScriptEntity sqlScriptEntity : sqlScriptEntities) {
+            grouped.computeIfAbsent(sqlScriptEntity.getBusinessSpace(), bs -> new ArrayList<>()).add(sqlScriptEntity);
+        }
+        Map<String, Space> spaces = new LinkedHashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<SQLScriptEntity>> gp : grouped.entrySet()) {
+            spaces.put(gp.getKey(), new Space(gp.getValue()));
+        }
+        return new SQLScriptCatalog(Collections.unmodifiableMap(spaces), sqlScriptEntities.size());
+    }
+
+    /**
+     * @return 目录中的业务空间，按业务空间首次出现的顺序排列
+     */
+    public Set<String> getBusinessSpaces() {
+        return spaces.keySet();
+    }
+
+    /**
+     * @return 目录中的脚本总数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取业务空间的全部脚本
+     *
+     * @param businessSpace 业务空间
+     * @return 按版本号升序排列的不可修改的脚本列表，业务空间不存在时返回空列表
+     */
+    public List<SQLScriptEntity> getScripts(String businessSpace) {
+        Space space = spaces.get(businessSpace);
+        return space == null ? List.of() : space.view;
+    }
+
+    /**
+     * 获取业务空间中版本号大于数据库当前版本的增量脚本
+     *
+     * @param businessSpace 业务空间
+     * @param latestVersion 数据库版本控制表中该业务空间的最新记录，为null时返回该业务空间的全部脚本
+     * @return 按版本号升序排列的不可修改的脚本列表
+     */
+    public List<SQLScriptEntity> pending(String businessSpace, DbVersionEntity latestVersion) {
+        if (latestVersion == null) {
+            return pending(businessSpace, 0, 0, 0, 0);
+        }
+        return pending(businessSpace, latestVersion.getMajorVersion(), latestVersion.getMinorVersion(),
+                latestVersion.getPatchVersion(), latestVersion.getExtendVersion());
+    }
+
+    /**
+     * 获取业务空间中版本号大于指定版本的增量脚本
+     *
+     * @param businessSpace 业务空间
+     * @param major         数据库版本控制表最新记录的主版本号
+     * @param minor         数据库版本控制表最新记录的次版本号
+     * @param patch         数据库版本控制表最新记录的补丁版本号
+     * @param extend        数据库版本控制表最新记录的扩展版本号
+     * @return 按版本号升序排列的不可修改的脚本列表
+     */
+    public List<SQLScriptEntity> pending(String businessSpace, int major, int minor, int patch, int extend) {
+        Space space = spaces.get(businessSpace);
+        if (space == null) {
+            return List.of();
+        }
+        return space.view.subList(space.upperBound(major, minor, patch, extend), space.scripts.length);
+    }
+
+    /**
+     * 单个业务空间的已排序脚本
+     */
+    private static class Space {
+        private final SQLScriptEntity[] scripts;
+        // 与scripts一一对应的版本键，有无法压缩的版本号时为null
+        private final long[] keys;
+        private final List<SQLScriptEntity> view;
+
+        private Space(List<SQLScriptEntity> sqlScripts) {
+            this.scripts = sqlScripts.toArray(new SQLScriptEntity[0]);
+            Arrays.sort(this.scripts);
+            long[] keys = new long[this.scripts.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = this.scripts[i].getVersionKey();
+                if (keys[i] == SQLScriptEntity.UNPACKABLE_VERSION) {
+                    keys = null;
+                    break;
+                }
+            }
+            this.keys = keys;
+            this.view = Collections.unmodifiableList(Arrays.asList(this.scripts));
+        }
+
+        /**
+         * @return 第一个版本号大于指定版本的脚本位置，没有时返回脚本数
+         */
+        private int upperBound(int major, int minor, int patch, int extend) {
+            long key = SQLScriptEntity.packVersion(major, minor, patch, extend);
+            int low = 0;
+            int high = scripts.length;
+            if (keys != null && key != SQLScriptEntity.UNPACKABLE_VERSION) {
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (keys[mid] <= key) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return low;
+            }
+            // 脚本已按版本号升序排列，checkNeed的结果在数组上是单调的
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scripts[mid].checkNeed(major, minor, patch, extend)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
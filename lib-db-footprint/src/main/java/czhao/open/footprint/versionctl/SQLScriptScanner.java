@@ -0,0 +1,124 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.utils.ScriptCodec;
+import czhao.open.footprint.utils.ScriptManifest;
+import czhao.open.footprint.utils.ScriptSource;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL脚本查找器
+ *
+ * <p>按配置的脚本目录查找sql脚本：classpath目录优先读取脚本清单{@link ScriptManifest#FILE_NAME}，没有清单时扫描classpath；
+ * 文件系统目录直接列出目录下的sql脚本。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class SQLScriptScanner {
+    private static final Logger logger = LoggerFactory.getLogger(SQLScriptScanner.class);
+
+    /**
+     * 数据库版本控制配置属性集
+     */
+    private final DbVersionCtlProps dbVersionCtlProps;
+
+    public SQLScriptScanner(DbVersionCtlProps dbVersionCtlProps) {
+        this.dbVersionCtlProps = dbVersionCtlProps;
+    }
+
+    /**
+     * 查找配置的所有脚本目录下的sql脚本
+     *
+     * <p>只根据文件名生成sql脚本对象，不读取脚本内容。</p>
+     *
+     * @return sql脚本对象集合
+     */
+    public List<SQLScriptEntity> scan() {
+        List<String> scriptDirPaths = this.dbVersionCtlProps.makeScriptDirPaths();
+        logger.debug("SQLScriptScanner scriptDirPaths:{}", scriptDirPaths);
+        List<SQLScriptEntity> sqlByBs = new ArrayList<>();
+        try {
+            for (String scriptDirPath : scriptDirPaths) {
+                if (scriptDirPath.startsWith("classpath:")) {
+                    readSqlFromClassPath(sqlByBs, scriptDirPath);
+                } else {
+                    readSqlFromFile(sqlByBs, scriptDirPath);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sqlByBs;
+    }
+
+    private void readSqlFromClassPath(List<SQLScriptEntity> sqlByBs, String scriptDirPath) throws IOException {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        String dirPath = scriptDirPath.endsWith("/") ? scriptDirPath : scriptDirPath + "/";
+        // 优先读取打包时生成的脚本清单，没有清单时才扫描classpath
+        Resource manifestResource = resolver.getResource(dirPath + ScriptManifest.FILE_NAME);
+        if (manifestResource.exists()) {
+            readSqlFromManifest(sqlByBs, resolver, dirPath, manifestResource);
+            return;
+        }
+        // sql脚本与CSV数据导入脚本，以及它们的压缩文件
+        for (String pathPattern : classPathPatterns(dirPath)) {
+            Resource[] resources = resolver.getResources(pathPattern);
+            for (Resource resource : resources) {
+                sqlByBs.add(new SQLScriptEntity(ScriptSource.of(resource)));
+            }
+        }
+    }
+
+    private static List<String> classPathPatterns(String dirPath) {
+        List<String> patterns = new ArrayList<>();
+        for (ScriptCodec codec : ScriptCodec.values()) {
+            patterns.add(dirPath + "*.sql" + codec.getSuffix());
+            patterns.add(dirPath + "*.csv" + codec.getSuffix());
+        }
+        return patterns;
+    }
+
+    private void readSqlFromManifest(List<SQLScriptEntity> sqlByBs, ResourcePatternResolver resolver, String dirPath,
+                                     Resource manifestResource) throws IOException {
+        ScriptManifest manifest;
+        try (InputStream inputStream = manifestResource.getInputStream()) {
+            manifest = ScriptManifest.read(inputStream);
+        }
+        logger.debug("SQLScriptScanner read {} scripts from manifest {}", manifest.getEntries().size(), manifestResource.getDescription());
+        for (ScriptManifest.Entry entry : manifest.getEntries()) {
+            SQLScriptEntity sqlScriptEntity = new SQLScriptEntity(ScriptSource.of(resolver.getResource(dirPath + entry.getFileName())));
+            if (!sqlScriptEntity.getVersion().equals(entry.getVersion())) {
+                throw new RuntimeException(ScriptManifest.FILE_NAME + " in [" + dirPath + "] is not consistent with " + entry.getFileName() + "!");
+            }
+            sqlScriptEntity.setScriptSize(entry.getSize());
+            sqlScriptEntity.setScriptDigestHex(entry.getDigestHex());
+            sqlByBs.add(sqlScriptEntity);
+        }
+    }
+
+    private void readSqlFromFile(List<SQLScriptEntity> sqlByBs, String scriptDirPath) {
+        File folder = new File(scriptDirPath);
+        if (folder.exists() && folder.isDirectory()) {
+            File[] files = folder.listFiles((dir, name) -> SQLScriptEntity.isScriptFileName(name));
+            if (files == null || files.length == 0) {
+                throw new RuntimeException("There is no sql files in [" + scriptDirPath + "]!");
+            }
+            for (File file : files) {
+                sqlByBs.add(new SQLScriptEntity(ScriptSource.of(file.toPath())));
+            }
+        } else {
+            throw new RuntimeException(scriptDirPath + " is not Filesystem Directory!");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.utils.DigestUtil;
+import czhao.open.footprint.utils.ScriptManifest;
+import czhao.open.footprint.utils.ScriptSource;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * SQL脚本清单生成器
+ *
+ * <p>在编译打包时为每个脚本目录生成脚本清单{@link ScriptManifest#FILE_NAME}，随脚本一起打入jar包，
+ * 运行时{@code IncreaseVersionTask}读取清单定位classpath中的脚本，不再扫描jar包。</p>
+ * <p>通常在业务项目的pom中通过exec-maven-plugin在process-classes阶段执行，参数为编译输出目录中的脚本目录：</p>
+ * <p>java czhao.open.footprint.versionctl.ScriptManifestGenerator target/classes/db/raven target/classes/db/sentry</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class ScriptManifestGenerator {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: ScriptManifestGenerator <scriptDir> [<scriptDir>...]");
+        }
+        for (String arg : args) {
+            Path manifestPath = generate(Paths.get(arg));
+            System.out.println("footprint script manifest generated: " + manifestPath);
+        }
+    }
+
+    /**
+     * 为脚本目录生成脚本清单
+     *
+     * @param scriptDir 文件系统中的脚本目录
+     * @return 生成的脚本清单文件路径
+     * @throws IOException IO异常
+     */
+    public static Path generate(Path scriptDir) throws IOException {
+        if (!Files.isDirectory(scriptDir)) {
+            throw new RuntimeException(scriptDir + " is not Filesystem Directory!");
+        }
+        List<Path> scripts;
+        try (Stream<Path> files = Files.list(scriptDir)) {
+            scripts = files.filter(p -> SQLScriptEntity.isScriptFileName(p.getFileName().toString()) && Files.isRegularFile(p))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        List<ScriptManifest.Entry> entries = new ArrayList<>();
+        for (Path script : scripts) {
+            // 按运行时相同的规则解析文件名，不合规的脚本在打包时即报错
+            SQLScriptEntity sqlScriptEntity = new SQLScriptEntity(ScriptSource.of(script));
+            entries.add(new ScriptManifest.Entry(sqlScriptEntity.getBusinessSpace(), sqlScriptEntity.getVersion(),
+                    script.getFileName().toString(), Files.size(script), digestHex(script)));
+        }
+        Path manifestPath = scriptDir.resolve(ScriptManifest.FILE_NAME);
+        try (Writer writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8)) {
+            new ScriptManifest(entries).write(writer);
+        }
+        return manifestPath;
+    }
+
+    /**
+     * 计算脚本内容摘要，压缩脚本基于解压后的内容计算，与执行时记录的摘要一致
+     */
+    private static String digestHex(Path script) throws IOException {
+        try (InputStream inputStream = ScriptSource.of(script).openScriptStream()) {
+            return DigestUtil.digestHex(inputStream);
+        }
+    }
+}
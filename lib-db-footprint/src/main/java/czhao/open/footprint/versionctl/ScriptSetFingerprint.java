@@ -0,0 +1,42 @@
+package czhao.open.footprint.versionctl;
+
+import czhao.open.footprint.utils.DigestUtil;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * SQL脚本集合指纹
+ *
+ * <p>对查找到的所有sql脚本文件名排序后计算SHA-256摘要。脚本文件名决定了业务空间与版本号，
+ * 已经执行过的脚本不会再次执行，因此文件名集合不变即说明没有需要执行的增量脚本，无需读取脚本内容。</p>
+ *
+ * @author zhaochun
+ */
+public class ScriptSetFingerprint {
+    private static final String FORMAT_VERSION = "v1";
+
+    private ScriptSetFingerprint() {
+    }
+
+    /**
+     * 计算sql脚本集合指纹
+     *
+     * @param sqlScriptEntities sql脚本对象集合
+     * @return 16进制指纹
+     */
+    public static String of(List<SQLScriptEntity> sqlScriptEntities) {
+        MessageDigest md = DigestUtil.newDigest();
+        md.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        sqlScriptEntities.stream()
+                .map(SQLScriptEntity::getFileName)
+                .sorted()
+                .forEach(fileName -> {
+                    md.update((byte) '\n');
+                    md.update(fileName.getBytes(StandardCharsets.UTF_8));
+                });
+        return DigestUtil.toHex(md.digest());
+    }
+}
@@ -2,6 +2,7 @@ package czhao.open.footprint.versionctl.chain;
 
 import czhao.open.footprint.utils.JdbcUtil;
 import czhao.open.footprint.utils.ScriptReader;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListeners;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
@@ -59,13 +60,25 @@ public abstract class DbVersionCtlAbstractTask implements DbVersionCtlTask {
     /**
      * 实现DbVersionCtlTask接口方法doMyWork
      *
-     * <p>本任务执行成功时再调用下一个任务。</p>
+     * <p>本任务执行成功时再调用下一个任务；任务的开始与结束会通知监听器，结束事件不包含后续任务的耗时。</p>
      *
      * @see DbVersionCtlTask
      */
     @Override
     public void doMyWork() {
-        if (runTask()) {
+        DbVersionCtlListeners listeners = this.context.getListeners();
+        String taskName = this.getClass().getSimpleName();
+        listeners.onTaskStart(taskName);
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = runTask();
+        } catch (RuntimeException e) {
+            listeners.onTaskEnd(taskName, System.nanoTime() - start, e);
+            throw e;
+        }
+        listeners.onTaskEnd(taskName, System.nanoTime() - start, null);
+        if (success) {
             callNext();
         }
     }
@@ -85,6 +98,25 @@ public abstract class DbVersionCtlAbstractTask implements DbVersionCtlTask {
         }
     }
 
+    /**
+     * 开启了语句日志时，创建语句日志表(已存在时不做处理)
+     */
+    protected void createStatementLogTableIfEnabled() {
+        if (!"y".equals(this.context.getDbVersionCtlProps().getStatementLog()) || this.context.isStatementLogTableReady()) {
+            return;
+        }
+        String createSqlPath = "classpath:db/versionctl/create_brood_db_version_ctl_stmt_log.sql";
+        InputStream inputStream = loadInputStreamFromClassPath(createSqlPath);
+        if (inputStream == null) {
+            throw new RuntimeException(createSqlPath + " not found!");
+        }
+        String dbVersionTableName = this.context.getDbVersionCtlProps().getDbVersionTableName();
+        List<String> sqls = readSqlFromInputStream(dbVersionTableName, !"brood_db_version_ctl".equals(dbVersionTableName), inputStream);
+        this.jdbcUtil.executeWithConnection(this.connection, sqls);
+        this.context.setStatementLogTableReady(true);
+        logger.info("语句日志表已创建: {}", this.context.makeStatementLogTableName());
+    }
+
     @SuppressWarnings("squid:S112")
     protected InputStream loadInputStreamFromClassPath(String classPath) {
         InputStream inputStream;
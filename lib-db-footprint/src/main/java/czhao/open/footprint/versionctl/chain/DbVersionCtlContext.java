@@ -2,9 +2,16 @@ package czhao.open.footprint.versionctl.chain;
 
 import czhao.open.footprint.utils.JdbcUtil;
 import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.DbVersionEntity;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListeners;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -30,6 +37,16 @@ public class DbVersionCtlContext {
      */
     public static final String DATETIME_PTN = "yyyy-MM-dd HH:mm:ss";
 
+    /**
+     * 脚本集合指纹表名后缀
+     */
+    public static final String FINGERPRINT_TABLE_SUFFIX = "_fingerprint";
+
+    /**
+     * 语句日志表名后缀
+     */
+    public static final String STATEMENT_LOG_TABLE_SUFFIX = "_stmt_log";
+
     /**
      * 数据库版本控制配置属性集
      */
@@ -50,6 +67,32 @@ public class DbVersionCtlContext {
      */
     private final BlockingQueue<DbVersionCtlTask> tasks = new LinkedBlockingQueue<>();
 
+    /**
+     * 已经查找到的sql脚本对象集合，为null时由IncreaseVersionTask自行查找
+     */
+    private List<SQLScriptEntity> sqlScriptEntities;
+
+    /**
+     * 已知的各个业务空间的最新版本，为null时由IncreaseVersionTask自行查询；
+     * IncreaseVersionTask每执行成功一个脚本都会更新其中对应业务空间的版本，监视模式下多次执行共用
+     */
+    private Map<String, DbVersionEntity> latestVersions;
+
+    /**
+     * 本次执行的统计
+     */
+    private DbVersionCtlStatistics statistics = new DbVersionCtlStatistics();
+
+    /**
+     * 数据库版本控制监听器
+     */
+    private DbVersionCtlListeners listeners = DbVersionCtlListeners.EMPTY;
+
+    /**
+     * 本次执行中是否已经确认语句日志表存在
+     */
+    private volatile boolean statementLogTableReady = false;
+
     /**
      * DbVersionCtlContext构造方法
      *
@@ -80,10 +123,69 @@ public class DbVersionCtlContext {
         return connection;
     }
 
+    /**
+     * 获取写入数据库版本记录的安装用户
+     *
+     * <p>优先使用配置属性中的JDBC连接用户；使用外部数据源而没有配置JDBC连接用户时，取JDBC连接的当前用户。</p>
+     *
+     * @return 安装用户
+     */
+    public String getInstallUser() {
+        String username = this.dbVersionCtlProps.getUsername();
+        if (username != null && !username.isBlank()) {
+            return username;
+        }
+        try {
+            return Optional.ofNullable(this.connection.getMetaData().getUserName()).orElse("none");
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public BlockingQueue<DbVersionCtlTask> getTasks() {
         return tasks;
     }
 
+    public DbVersionCtlStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(DbVersionCtlStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public DbVersionCtlListeners getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(DbVersionCtlListeners listeners) {
+        this.listeners = listeners;
+    }
+
+    public boolean isStatementLogTableReady() {
+        return statementLogTableReady;
+    }
+
+    public void setStatementLogTableReady(boolean statementLogTableReady) {
+        this.statementLogTableReady = statementLogTableReady;
+    }
+
+    public List<SQLScriptEntity> getSqlScriptEntities() {
+        return sqlScriptEntities;
+    }
+
+    public void setSqlScriptEntities(List<SQLScriptEntity> sqlScriptEntities) {
+        this.sqlScriptEntities = sqlScriptEntities;
+    }
+
+    public Map<String, DbVersionEntity> getLatestVersions() {
+        return latestVersions;
+    }
+
+    public void setLatestVersions(Map<String, DbVersionEntity> latestVersions) {
+        this.latestVersions = latestVersions;
+    }
+
     /**
      * 向任务队列添加一个任务。
      *
@@ -110,6 +212,7 @@ public class DbVersionCtlContext {
      */
     public void closeGcJdbcUtil() {
         if (this.connection != null) {
+            this.jdbcUtil.closeStatementCache(this.connection);
             try {
                 this.connection.close();
             } catch (SQLException e) {
@@ -137,18 +240,107 @@ public class DbVersionCtlContext {
      */
     public String makeUpdateSql() {
         return "UPDATE " + this.dbVersionCtlProps.getDbVersionTableName()
-                + " set success = 1, execution_time = ? WHERE business_space = ? AND major_version = ? AND minor_version = ? AND patch_version = ? AND extend_version = ?";
+                + " set success = 1, execution_time = ?, script_digest_hex = ? WHERE business_space = ? AND major_version = ? AND minor_version = ? AND patch_version = ? AND extend_version = ?";
+    }
+
+    /**
+     * 生成查询各个业务空间最新版本的SQL文
+     *
+     * <p>先取得所有业务空间(唯一索引最左列上的松散索引扫描)，再对每个业务空间按版本号倒序在唯一索引上取第一条记录，
+     * 最后按主键取回版本号字段。查询代价只与业务空间个数有关，与版本记录的历史条数无关。</p>
+     * <p>依赖建表脚本中的唯一索引"(business_space, major_version, minor_version, patch_version, extend_version)"。</p>
+     *
+     * @return 各个业务空间最新版本查询SQL文
+     */
+    public String makeLatestVersionSelectSql() {
+        String tbl = this.dbVersionCtlProps.getDbVersionTableName();
+        return "SELECT v.business_space, v.major_version, v.minor_version, v.patch_version, v.extend_version"
+                + " FROM " + tbl + " v JOIN ("
+                + "SELECT (SELECT n.id FROM " + tbl + " n WHERE n.business_space = s.business_space"
+                + " ORDER BY n.major_version DESC, n.minor_version DESC, n.patch_version DESC, n.extend_version DESC LIMIT 1) AS latest_id"
+                + " FROM (SELECT DISTINCT business_space FROM " + tbl + ") s"
+                + ") l ON v.id = l.latest_id";
+    }
+
+    /**
+     * 生成已成功执行的sql脚本记录查询SQL文
+     *
+     * @return 已成功执行的sql脚本记录查询SQL文
+     */
+    public String makeAppliedScriptSelectSql() {
+        return "SELECT business_space, version, script_file_name, script_digest_hex FROM " + this.dbVersionCtlProps.getDbVersionTableName()
+                + " WHERE version_type IN ('SQL', 'CSV') AND success = 1";
+    }
+
+    /**
+     * 生成脚本集合指纹表名
+     *
+     * @return 脚本集合指纹表名，即"[dbVersionTableName]_fingerprint"
+     */
+    public String makeFingerprintTableName() {
+        return this.dbVersionCtlProps.getDbVersionTableName() + FINGERPRINT_TABLE_SUFFIX;
+    }
+
+    /**
+     * 生成脚本集合指纹表建表SQL文，表中只有id为1的一行记录
+     *
+     * @return 脚本集合指纹表建表SQL文
+     */
+    public String makeFingerprintTableCreateSql() {
+        return "CREATE TABLE IF NOT EXISTS " + makeFingerprintTableName()
+                + " (id INT NOT NULL, script_set_digest_hex VARCHAR(200) NOT NULL, install_time VARCHAR(19) NOT NULL,"
+                + " install_user VARCHAR(100) NOT NULL, PRIMARY KEY (id))";
+    }
+
+    /**
+     * 生成脚本集合指纹查询SQL文，按主键查询单条记录
+     *
+     * <p>数据库版本控制表不存在或没有记录时查询失败或没有结果，避免版本控制表被删除后仍按残留的指纹跳过升级。</p>
+     *
+     * @return 脚本集合指纹查询SQL文
+     */
+    public String makeFingerprintSelectSql() {
+        return "SELECT script_set_digest_hex FROM " + makeFingerprintTableName()
+                + " WHERE id = 1 AND EXISTS (SELECT 1 FROM " + this.dbVersionCtlProps.getDbVersionTableName() + ")";
+    }
+
+    /**
+     * 生成脚本集合指纹更新SQL文
+     *
+     * @return 脚本集合指纹更新SQL文
+     */
+    public String makeFingerprintUpdateSql() {
+        return "UPDATE " + makeFingerprintTableName()
+                + " set script_set_digest_hex = ?, install_time = ?, install_user = ? WHERE id = 1";
+    }
+
+    /**
+     * 生成脚本集合指纹插入SQL文
+     *
+     * @return 脚本集合指纹插入SQL文
+     */
+    public String makeFingerprintInsertSql() {
+        return "INSERT INTO " + makeFingerprintTableName()
+                + " (id, script_set_digest_hex, install_time, install_user) VALUES (1, ?, ?, ?)";
+    }
+
+    /**
+     * 生成语句日志表名
+     *
+     * @return 语句日志表名，即"[dbVersionTableName]_stmt_log"
+     */
+    public String makeStatementLogTableName() {
+        return this.dbVersionCtlProps.getDbVersionTableName() + STATEMENT_LOG_TABLE_SUFFIX;
     }
 
     /**
-     * 生成数据库版本控制表查询SQL文
+     * 生成语句日志表插入SQL文
      *
-     * @return 数据库版本控制表查询SQL文
+     * @return 语句日志表插入SQL文
      */
-    public String makeSelectSql() {
-        return "SELECT id, " + DbVersionCtlContext.DB_VERSION_CTL_COLS_WITHOUT_ID
-                + " FROM " + this.dbVersionCtlProps.getDbVersionTableName()
-                + " WHERE business_space = ?"
-                + " ORDER BY major_version DESC , minor_version DESC , patch_version DESC , extend_version DESC";
+    public String makeStatementLogInsertSql() {
+        return "INSERT INTO " + makeStatementLogTableName()
+                + "(business_space, version, ordinal, statement_fingerprint, statement_text, duration_micros, update_count, batched, install_time)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
     }
 }
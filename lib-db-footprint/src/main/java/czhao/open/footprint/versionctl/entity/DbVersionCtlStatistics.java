@@ -0,0 +1,131 @@
+package czhao.open.footprint.versionctl.entity;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库版本控制单次执行的统计Entity
+ *
+ * <p>记录本次执行的操作模式、各阶段耗时与执行的sql脚本数，用于评估大规模脚本目录下的执行开销。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class DbVersionCtlStatistics {
+    // 操作模式，指纹检查命中时为null
+    private String operationMode;
+    // 是否因sql脚本集合指纹未变化而直接结束
+    private boolean fingerprintHit;
+    // 各阶段累计耗时(纳秒)
+    private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+    // 本次执行的sql脚本数
+    private final AtomicInteger executedScripts = new AtomicInteger();
+    // 总耗时(纳秒)
+    private long totalNanos;
+    // PreparedStatement缓存的命中与未命中次数，没有开启缓存时均为0
+    private long statementCacheHits;
+    private long statementCacheMisses;
+
+    /**
+     * 累加阶段耗时，可在多个工作线程中调用
+     *
+     * @param phase 阶段
+     * @param nanos 耗时(纳秒)
+     */
+    public synchronized void addPhaseNanos(Phase phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * @param phase 阶段
+     * @return 阶段累计耗时(毫秒)，没有经过该阶段时为0
+     */
+    public synchronized long getPhaseMillis(Phase phase) {
+        return phaseNanos.getOrDefault(phase, 0L) / 1_000_000;
+    }
+
+    public void incrementExecutedScripts() {
+        executedScripts.incrementAndGet();
+    }
+
+    public int getExecutedScripts() {
+        return executedScripts.get();
+    }
+
+    public String getOperationMode() {
+        return operationMode;
+    }
+
+    public void setOperationMode(String operationMode) {
+        this.operationMode = operationMode;
+    }
+
+    public boolean isFingerprintHit() {
+        return fingerprintHit;
+    }
+
+    public void setFingerprintHit(boolean fingerprintHit) {
+        this.fingerprintHit = fingerprintHit;
+    }
+
+    public long getTotalMillis() {
+        return totalNanos / 1_000_000;
+    }
+
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * @param hits   PreparedStatement缓存的命中次数
+     * @param misses PreparedStatement缓存的未命中次数
+     */
+    public void setStatementCache(long hits, long misses) {
+        this.statementCacheHits = hits;
+        this.statementCacheMisses = misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("DbVersionCtlStatistics{")
+                .append("operationMode='").append(operationMode).append('\'')
+                .append(", fingerprintHit=").append(fingerprintHit)
+                .append(", executedScripts=").append(executedScripts.get())
+                .append(", totalMillis=").append(getTotalMillis());
+        if (statementCacheHits + statementCacheMisses > 0) {
+            sb.append(", statementCacheHits=").append(statementCacheHits)
+                    .append(", statementCacheMisses=").append(statementCacheMisses);
+        }
+        for (Map.Entry<Phase, Long> e : phaseNanos.entrySet()) {
+            sb.append(", ").append(e.getKey()).append("=").append(e.getValue() / 1_000_000);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 执行阶段
+     */
+    public enum Phase {
+        // 查找sql脚本
+        DISCOVERY,
+        // 检查sql脚本集合指纹
+        FINGERPRINT_CHECK,
+        // 等待集群互斥锁
+        LOCK_WAIT,
+        // 判断操作模式(查询表清单、基线重置条件)
+        MODE_DETECTION,
+        // 查询各个业务空间的最新版本
+        VERSION_LOOKUP,
+        // 执行增量sql脚本并记录版本
+        EXECUTION
+    }
+}
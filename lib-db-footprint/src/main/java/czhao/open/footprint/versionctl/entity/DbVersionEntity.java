@@ -63,9 +63,10 @@ public class DbVersionEntity {
     private String customName;
 
     /**
-     * 该版本记录类型，支持两种：SQL 或 BaseLine
+     * 该版本记录类型，支持三种：SQL、CSV 或 BaseLine
      *
      * <p>SQL:由执行具体的某个SQL脚本而导致的数据库版本记录。</p>
+     * <p>CSV:由导入具体的某个CSV数据导入脚本而导致的数据库版本记录。</p>
      * <p>BaseLine:对已经上线的项目做指定版本的基线版本记录。</p>
      */
     private String versionType;
@@ -0,0 +1,56 @@
+package czhao.open.footprint.versionctl.entity;
+
+/**
+ * 多租户数据库版本控制中单个租户的执行结果Entity
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class FleetTenantResult {
+    // 租户名
+    private final String tenant;
+    // 执行失败时的异常，成功时为null
+    private final Throwable error;
+    // 执行耗时(毫秒)，包含等待连接的时间
+    private final long durationMillis;
+    // 本次执行的统计，在获取JDBC连接之前失败时为null
+    private final DbVersionCtlStatistics statistics;
+
+    public FleetTenantResult(String tenant, Throwable error, long durationMillis, DbVersionCtlStatistics statistics) {
+        this.tenant = tenant;
+        this.error = error;
+        this.durationMillis = durationMillis;
+        this.statistics = statistics;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public DbVersionCtlStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetTenantResult{" +
+                "tenant='" + tenant + '\'' +
+                ", success=" + isSuccess() +
+                ", durationMillis=" + durationMillis +
+                (error != null ? ", error=" + error : "") +
+                ", statistics=" + statistics +
+                '}';
+    }
+}
@@ -1,10 +1,9 @@
 package czhao.open.footprint.versionctl.entity;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import czhao.open.footprint.utils.ScriptCodec;
+import czhao.open.footprint.utils.ScriptReader;
+import czhao.open.footprint.utils.ScriptSource;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,16 +15,37 @@ import java.util.regex.Pattern;
 @SuppressWarnings("unused")
 public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
     // sql脚本文件名正则表达式
-    private static final Pattern PTN_SCRIPT_NAME_DEFAULT = Pattern.compile("^([A-Za-z0-9]+)_V(\\d+)\\.(\\d+)\\.(\\d+)_(\\w+)\\.sql$");
-    private static final Pattern PTN_SCRIPT_NAME_EXTEND = Pattern.compile("^([A-Za-z0-9]+)_V(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)_(\\w+)\\.sql$");
+    private static final Pattern PTN_SCRIPT_NAME_DEFAULT = Pattern.compile("^([A-Za-z0-9]+)_V(\\d+)\\.(\\d+)\\.(\\d+)_(\\w+)\\.(sql|csv)$");
+    private static final Pattern PTN_SCRIPT_NAME_EXTEND = Pattern.compile("^([A-Za-z0-9]+)_V(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)_(\\w+)\\.(sql|csv)$");
 
-    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * SQL脚本类型，逐条执行脚本中的SQL语句
+     */
+    public static final String SCRIPT_TYPE_SQL = "SQL";
+
+    /**
+     * CSV数据导入脚本类型，将数据行导入脚本头部指定的表，见{@link czhao.open.footprint.utils.CsvScript}
+     */
+    public static final String SCRIPT_TYPE_CSV = "CSV";
+
+    /**
+     * 可以压缩为版本键的单个版本号分量的最大值
+     */
+    public static final int MAX_PACKABLE_VERSION = 0xFFFF;
+
+    /**
+     * 不能压缩为版本键时{@link #packVersion}的返回值
+     */
+    public static final long UNPACKABLE_VERSION = Long.MAX_VALUE;
 
     /* SQLScript对象构建属性 */
-    // sql脚本文件名，格式为"[业务空间]_V[major].[minor].[patch].[extend]_[自定义名称].sql"
+    // sql脚本文件名，格式为"[业务空间]_V[major].[minor].[patch].[extend]_[自定义名称].sql"，CSV数据导入脚本的扩展名为".csv"；
+    // 压缩脚本为去掉压缩后缀(如".gz")的文件名
     private String fileName;
-    // 脚本输入流
-    private InputStream inputStream;
+    // 脚本类型，根据扩展名为{@link #SCRIPT_TYPE_SQL}或{@link #SCRIPT_TYPE_CSV}
+    private String scriptType;
+    // 脚本来源，只在需要执行该脚本时才打开读取
+    private ScriptSource scriptSource;
 
     /* SQLScript对象常规属性 */
     // 业务空间，用于同一database下数据表的集合划分，通常根据业务功能划分；
@@ -40,45 +60,67 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
     private int patchVersion;
     // 扩展版本号，一个业务空间对应的扩展版本号，对应"x.y.z.t"中的4，只支持非负整数
     private int extendVersion;
-    // 一个业务空间的完整版本号，格式为"[businessSpace]_V[majorVersion].[minorVersion].[patchVersion]"
+    // 一个业务空间的完整版本号，格式为"[businessSpace]_V[majorVersion].[minorVersion].[patchVersion].[extendVersion]"
+    // 首次使用时才生成，大规模脚本目录中多数脚本不需要执行，无需生成
     private String version;
     // 该sql脚本的自定义名称，支持大小写字母，数字与下划线
     private String customName;
+    // 脚本文件字节数，来自脚本清单，-1表示未知
+    private long scriptSize = -1;
+    // 脚本内容摘要(16进制)，来自脚本清单，null表示未知
+    private String scriptDigestHex;
 
     /**
      * SQLScriptEntity构造方法
      *
-     * @param fileName SQL脚本文件名
-     * @param inputStream SQL脚本输入流
+     * <p>只根据文件名解析脚本的版本信息，不会读取脚本内容。</p>
+     *
+     * @param scriptSource SQL脚本来源
      */
-    public SQLScriptEntity(String fileName, InputStream inputStream) {
-        this.fileName = fileName;
-        this.inputStream = inputStream;
+    public SQLScriptEntity(ScriptSource scriptSource) {
+        this.scriptSource = scriptSource;
+        // 压缩脚本按压缩前的文件名解析
+        this.fileName = scriptSource.getCodec().stripSuffix(scriptSource.getFileName());
         Matcher matcherDefault = PTN_SCRIPT_NAME_DEFAULT.matcher(fileName);
         if (matcherDefault.matches()) {
-            this.businessSpace = matcherDefault.group(1);
+            this.businessSpace = matcherDefault.group(1).intern();
             this.majorVersion = Integer.parseInt(matcherDefault.group(2));
             this.minorVersion = Integer.parseInt(matcherDefault.group(3));
             this.patchVersion = Integer.parseInt(matcherDefault.group(4));
             this.extendVersion = 0;
             this.customName = matcherDefault.group(5);
-            this.version = String.format("%s_V%s.%s.%s.%s", businessSpace, majorVersion, minorVersion, patchVersion, extendVersion);
+            this.scriptType = toScriptType(matcherDefault.group(6));
         } else {
             Matcher matcherExtend = PTN_SCRIPT_NAME_EXTEND.matcher(fileName);
             if (matcherExtend.matches()) {
-                this.businessSpace = matcherExtend.group(1);
+                this.businessSpace = matcherExtend.group(1).intern();
                 this.majorVersion = Integer.parseInt(matcherExtend.group(2));
                 this.minorVersion = Integer.parseInt(matcherExtend.group(3));
                 this.patchVersion = Integer.parseInt(matcherExtend.group(4));
                 this.extendVersion = Integer.parseInt(matcherExtend.group(5));
                 this.customName = matcherExtend.group(6);
-                this.version = String.format("%s_V%s.%s.%s.%s", businessSpace, majorVersion, minorVersion, patchVersion, extendVersion);
+                this.scriptType = toScriptType(matcherExtend.group(7));
             } else {
                 throw new RuntimeException(fileName + " format is not correct!");
             }
         }
     }
 
+    private static String toScriptType(String extension) {
+        return "csv".equals(extension) ? SCRIPT_TYPE_CSV : SCRIPT_TYPE_SQL;
+    }
+
+    /**
+     * 判断文件名是否具有支持的脚本扩展名(".sql"或".csv"，可以带压缩后缀如".sql.gz")，不检查版本号格式
+     *
+     * @param fileName 文件名
+     * @return 是否是脚本文件
+     */
+    public static boolean isScriptFileName(String fileName) {
+        String name = ScriptCodec.of(fileName).stripSuffix(fileName);
+        return name.endsWith(".sql") || name.endsWith(".csv");
+    }
+
     /**
      * 检查该SQL脚本是否需要执行
      *
@@ -110,6 +152,35 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
         return this.extendVersion > extend;
     }
 
+    /**
+     * 获取压缩为单个long的版本键
+     *
+     * @return 版本键，见{@link #packVersion}
+     */
+    public long getVersionKey() {
+        return packVersion(majorVersion, minorVersion, patchVersion, extendVersion);
+    }
+
+    /**
+     * 将版本号压缩为单个long的版本键
+     *
+     * <p>四个版本号分量各占16位，并翻转符号位，使版本键的有符号大小顺序与版本号顺序一致。</p>
+     *
+     * @param major  主版本号
+     * @param minor  次版本号
+     * @param patch  补丁版本号
+     * @param extend 扩展版本号
+     * @return 版本键；任一分量超过{@link #MAX_PACKABLE_VERSION}时返回{@link #UNPACKABLE_VERSION}
+     */
+    public static long packVersion(int major, int minor, int patch, int extend) {
+        if ((major | minor | patch | extend) < 0
+                || major > MAX_PACKABLE_VERSION || minor > MAX_PACKABLE_VERSION
+                || patch > MAX_PACKABLE_VERSION || extend > MAX_PACKABLE_VERSION) {
+            return UNPACKABLE_VERSION;
+        }
+        return (((long) major << 48) | ((long) minor << 32) | ((long) patch << 16) | extend) ^ Long.MIN_VALUE;
+    }
+
     @Override
     public int compareTo(SQLScriptEntity o) {
         if (this.getMajorVersion() == o.getMajorVersion()) {
@@ -127,19 +198,6 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
         }
     }
 
-    /**
-     * 关闭SQL脚本的输入流
-     */
-    public void closeInputStream() {
-        if (this.inputStream != null) {
-            try {
-                this.inputStream.close();
-            } catch (IOException e) {
-               logger.warn("closeInputStream fail! fileName:[" + this.fileName + "]", e);
-            }
-        }
-    }
-
     @Override
     public String toString() {
         return "SQLScriptEntity{" +
@@ -149,8 +207,9 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
                 ", minorVersion=" + minorVersion +
                 ", patchVersion=" + patchVersion +
                 ", extendVersion=" + extendVersion +
-                ", version='" + version + '\'' +
+                ", version='" + getVersion() + '\'' +
                 ", customName='" + customName + '\'' +
+                ", scriptType='" + scriptType + '\'' +
                 '}';
     }
 
@@ -162,12 +221,29 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
         this.fileName = fileName;
     }
 
-    public InputStream getInputStream() {
-        return inputStream;
+    /**
+     * 打开该SQL脚本的阅读器
+     *
+     * @return SQL脚本阅读器
+     */
+    public ScriptReader createScriptReader() {
+        return this.scriptSource.openScriptReader();
+    }
+
+    public String getScriptType() {
+        return scriptType;
+    }
+
+    public void setScriptType(String scriptType) {
+        this.scriptType = scriptType;
     }
 
-    public void setInputStream(InputStream inputStream) {
-        this.inputStream = inputStream;
+    public ScriptSource getScriptSource() {
+        return scriptSource;
+    }
+
+    public void setScriptSource(ScriptSource scriptSource) {
+        this.scriptSource = scriptSource;
     }
 
     public String getBusinessSpace() {
@@ -211,6 +287,9 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
     }
 
     public String getVersion() {
+        if (version == null) {
+            version = businessSpace + "_V" + majorVersion + "." + minorVersion + "." + patchVersion + "." + extendVersion;
+        }
         return version;
     }
 
@@ -225,4 +304,20 @@ public class SQLScriptEntity implements Comparable<SQLScriptEntity> {
     public void setCustomName(String customName) {
         this.customName = customName;
     }
+
+    public long getScriptSize() {
+        return scriptSize;
+    }
+
+    public void setScriptSize(long scriptSize) {
+        this.scriptSize = scriptSize;
+    }
+
+    public String getScriptDigestHex() {
+        return scriptDigestHex;
+    }
+
+    public void setScriptDigestHex(String scriptDigestHex) {
+        this.scriptDigestHex = scriptDigestHex;
+    }
 }
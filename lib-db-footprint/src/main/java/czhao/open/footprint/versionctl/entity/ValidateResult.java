@@ -0,0 +1,105 @@
+package czhao.open.footprint.versionctl.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * sql脚本校验结果Entity
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class ValidateResult {
+    // 完成摘要比对的脚本数
+    private int checkedCount;
+    // 版本记录中没有摘要(摘要为"none")而无法比对的脚本数
+    private int uncheckedCount;
+    // 摘要不一致，即执行后被修改过的脚本
+    private final List<Mismatch> mismatches = new ArrayList<>();
+    // 有执行记录但当前找不到的脚本版本号
+    private final List<String> missingVersions = new ArrayList<>();
+
+    /**
+     * @return 是否没有被修改过的脚本
+     */
+    public boolean isValid() {
+        return mismatches.isEmpty();
+    }
+
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    public void setCheckedCount(int checkedCount) {
+        this.checkedCount = checkedCount;
+    }
+
+    public int getUncheckedCount() {
+        return uncheckedCount;
+    }
+
+    public void setUncheckedCount(int uncheckedCount) {
+        this.uncheckedCount = uncheckedCount;
+    }
+
+    public List<Mismatch> getMismatches() {
+        return mismatches;
+    }
+
+    public List<String> getMissingVersions() {
+        return missingVersions;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidateResult{" +
+                "checkedCount=" + checkedCount +
+                ", uncheckedCount=" + uncheckedCount +
+                ", mismatches=" + mismatches +
+                ", missingVersions=" + missingVersions +
+                '}';
+    }
+
+    /**
+     * 摘要不一致的脚本
+     */
+    public static class Mismatch {
+        private final String version;
+        private final String fileName;
+        private final String recordedDigestHex;
+        private final String actualDigestHex;
+
+        public Mismatch(String version, String fileName, String recordedDigestHex, String actualDigestHex) {
+            this.version = version;
+            this.fileName = fileName;
+            this.recordedDigestHex = recordedDigestHex;
+            this.actualDigestHex = actualDigestHex;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getRecordedDigestHex() {
+            return recordedDigestHex;
+        }
+
+        public String getActualDigestHex() {
+            return actualDigestHex;
+        }
+
+        @Override
+        public String toString() {
+            return "Mismatch{" +
+                    "version='" + version + '\'' +
+                    ", fileName='" + fileName + '\'' +
+                    ", recordedDigestHex='" + recordedDigestHex + '\'' +
+                    ", actualDigestHex='" + actualDigestHex + '\'' +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package czhao.open.footprint.versionctl.listener;
+
+import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+/**
+ * 数据库版本控制监听器
+ *
+ * <p>通过{@link czhao.open.footprint.versionctl.DbVersionCtl#addListener(DbVersionCtlListener)}注册，
+ * 在执行、任务、sql脚本与SQL语句的开始与结束时回调，所有方法默认不做任何处理。</p>
+ * <p>按业务空间并行执行时，脚本与语句的回调会在多个工作线程中同时发生，实现类须保证线程安全；
+ * 回调在执行线程中同步调用，不应做耗时操作。监听器抛出的异常会被记录并忽略，不影响版本控制的执行。</p>
+ *
+ * @author zhaochun
+ */
+public interface DbVersionCtlListener {
+
+    /**
+     * 一次数据库版本控制开始
+     *
+     * @param dbVersionCtlProps 数据库版本控制配置属性集
+     */
+    default void onRunStart(DbVersionCtlProps dbVersionCtlProps) {
+    }
+
+    /**
+     * 一次数据库版本控制结束
+     *
+     * @param statistics 本次执行的统计，在获取JDBC连接之前失败时为null
+     * @param error      执行失败时的异常，成功时为null
+     */
+    default void onRunEnd(DbVersionCtlStatistics statistics, Throwable error) {
+    }
+
+    /**
+     * 任务开始
+     *
+     * @param taskName 任务名，即任务类的简单类名
+     */
+    default void onTaskStart(String taskName) {
+    }
+
+    /**
+     * 任务结束，不包含任务链中后续任务的执行
+     *
+     * @param taskName      任务名
+     * @param durationNanos 任务耗时(纳秒)
+     * @param error         任务失败时的异常，成功时为null
+     */
+    default void onTaskEnd(String taskName, long durationNanos, Throwable error) {
+    }
+
+    /**
+     * sql脚本开始执行
+     *
+     * @param script sql脚本
+     */
+    default void onScriptStart(SQLScriptEntity script) {
+    }
+
+    /**
+     * sql脚本执行结束
+     *
+     * @param event sql脚本执行事件
+     */
+    default void onScriptEnd(ScriptEvent event) {
+    }
+
+    /**
+     * SQL语句开始执行(批量执行时为加入批次)
+     *
+     * @param script  语句所在sql脚本
+     * @param ordinal 语句在脚本中的序号，从1开始
+     * @param sql     SQL语句
+     */
+    default void onStatementStart(SQLScriptEntity script, int ordinal, String sql) {
+    }
+
+    /**
+     * SQL语句执行成功
+     *
+     * @param event SQL语句执行事件
+     */
+    default void onStatementEnd(StatementEvent event) {
+    }
+}
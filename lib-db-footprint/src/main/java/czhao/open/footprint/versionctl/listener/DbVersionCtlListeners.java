@@ -0,0 +1,94 @@
+package czhao.open.footprint.versionctl.listener;
+
+import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 数据库版本控制监听器组合
+ *
+ * <p>依次回调所有监听器，单个监听器抛出的异常只记录日志，不影响其他监听器与版本控制的执行。</p>
+ *
+ * @author zhaochun
+ */
+public class DbVersionCtlListeners implements DbVersionCtlListener {
+    private static final Logger logger = LoggerFactory.getLogger(DbVersionCtlListeners.class);
+
+    /**
+     * 没有任何监听器的组合
+     */
+    public static final DbVersionCtlListeners EMPTY = new DbVersionCtlListeners(List.of());
+
+    private final List<DbVersionCtlListener> listeners;
+
+    /**
+     * DbVersionCtlListeners构造方法
+     *
+     * @param listeners 监听器集合，会复制一份
+     */
+    public DbVersionCtlListeners(List<DbVersionCtlListener> listeners) {
+        this.listeners = List.copyOf(listeners);
+    }
+
+    /**
+     * @return 是否没有任何监听器，没有时调用方可以省去事件的构建
+     */
+    public boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    private void fire(Consumer<DbVersionCtlListener> callback) {
+        for (DbVersionCtlListener listener : listeners) {
+            try {
+                callback.accept(listener);
+            } catch (RuntimeException e) {
+                logger.warn("DbVersionCtlListener {} callback failed.", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onRunStart(DbVersionCtlProps dbVersionCtlProps) {
+        fire(listener -> listener.onRunStart(dbVersionCtlProps));
+    }
+
+    @Override
+    public void onRunEnd(DbVersionCtlStatistics statistics, Throwable error) {
+        fire(listener -> listener.onRunEnd(statistics, error));
+    }
+
+    @Override
+    public void onTaskStart(String taskName) {
+        fire(listener -> listener.onTaskStart(taskName));
+    }
+
+    @Override
+    public void onTaskEnd(String taskName, long durationNanos, Throwable error) {
+        fire(listener -> listener.onTaskEnd(taskName, durationNanos, error));
+    }
+
+    @Override
+    public void onScriptStart(SQLScriptEntity script) {
+        fire(listener -> listener.onScriptStart(script));
+    }
+
+    @Override
+    public void onScriptEnd(ScriptEvent event) {
+        fire(listener -> listener.onScriptEnd(event));
+    }
+
+    @Override
+    public void onStatementStart(SQLScriptEntity script, int ordinal, String sql) {
+        fire(listener -> listener.onStatementStart(script, ordinal, sql));
+    }
+
+    @Override
+    public void onStatementEnd(StatementEvent event) {
+        fire(listener -> listener.onStatementEnd(event));
+    }
+}
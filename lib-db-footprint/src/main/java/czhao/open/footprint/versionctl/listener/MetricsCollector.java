@@ -0,0 +1,333 @@
+package czhao.open.footprint.versionctl.listener;
+
+import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存指标收集器
+ *
+ * <p>以监听器的形式统计执行次数、sql脚本数、SQL语句数、影响行数与读取字节数，并以直方图记录脚本与语句的耗时分布；
+ * 调用{@link #registerMBean()}后可以通过JMX查看正在执行的任务与sql脚本等实时进度。</p>
+ * <p>所有统计只保存在内存中，可以跨多次执行累计，调用{@link #reset()}清零。</p>
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class MetricsCollector implements DbVersionCtlListener, MetricsCollectorMBean {
+    /**
+     * JMX ObjectName前缀
+     */
+    public static final String OBJECT_NAME_PREFIX = "czhao.open.footprint:type=DbVersionCtlMetrics,name=";
+
+    private final String name;
+    private final LongAdder runsStarted = new LongAdder();
+    private final LongAdder runsFailed = new LongAdder();
+    private final LongAdder scriptsExecuted = new LongAdder();
+    private final LongAdder scriptsFailed = new LongAdder();
+    private final LongAdder statementsExecuted = new LongAdder();
+    private final LongAdder rowsAffected = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final Histogram scriptDurations = new Histogram();
+    private final Histogram statementDurations = new Histogram();
+    // 正在执行的sql脚本及其执行中的个数，按业务空间并行执行或多租户执行时可能有多个
+    private final Map<SQLScriptEntity, Integer> runningScripts = new ConcurrentHashMap<>();
+    private volatile String currentTask = "";
+
+    /**
+     * MetricsCollector构造方法
+     *
+     * @param name 收集器名称，用于JMX ObjectName，同一JVM中注册多个收集器时须不同
+     */
+    public MetricsCollector(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 将本收集器注册到平台MBeanServer
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = makeObjectName();
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 从平台MBeanServer注销本收集器
+     */
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = makeObjectName();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ObjectName makeObjectName() throws JMException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+    }
+
+    @Override
+    public void onRunStart(DbVersionCtlProps dbVersionCtlProps) {
+        runsStarted.increment();
+    }
+
+    @Override
+    public void onRunEnd(DbVersionCtlStatistics statistics, Throwable error) {
+        if (error != null) {
+            runsFailed.increment();
+        }
+        currentTask = "";
+    }
+
+    @Override
+    public void onTaskStart(String taskName) {
+        currentTask = taskName;
+    }
+
+    @Override
+    public void onScriptStart(SQLScriptEntity script) {
+        runningScripts.merge(script, 1, Integer::sum);
+    }
+
+    @Override
+    public void onScriptEnd(ScriptEvent event) {
+        runningScripts.computeIfPresent(event.getScript(), (script, running) -> running > 1 ? running - 1 : null);
+        if (event.getError() != null) {
+            scriptsFailed.increment();
+        } else {
+            scriptsExecuted.increment();
+        }
+        bytesRead.add(event.getBytesRead());
+        scriptDurations.record(event.getDurationNanos());
+    }
+
+    @Override
+    public void onStatementEnd(StatementEvent event) {
+        statementsExecuted.increment();
+        if (event.getUpdateCount() > 0) {
+            rowsAffected.add(event.getUpdateCount());
+        }
+        statementDurations.record(event.getDurationNanos());
+    }
+
+    public Histogram getScriptDurations() {
+        return scriptDurations;
+    }
+
+    public Histogram getStatementDurations() {
+        return statementDurations;
+    }
+
+    @Override
+    public long getRunsStarted() {
+        return runsStarted.sum();
+    }
+
+    @Override
+    public long getRunsFailed() {
+        return runsFailed.sum();
+    }
+
+    @Override
+    public String getCurrentTask() {
+        return currentTask;
+    }
+
+    @Override
+    public String[] getRunningScripts() {
+        return runningScripts.keySet().stream().map(SQLScriptEntity::getFileName).sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public long getScriptsExecuted() {
+        return scriptsExecuted.sum();
+    }
+
+    @Override
+    public long getScriptsFailed() {
+        return scriptsFailed.sum();
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+        return statementsExecuted.sum();
+    }
+
+    @Override
+    public long getRowsAffected() {
+        return rowsAffected.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getScriptDurationP50Millis() {
+        return scriptDurations.percentile(0.5) / 1_000_000;
+    }
+
+    @Override
+    public long getScriptDurationP99Millis() {
+        return scriptDurations.percentile(0.99) / 1_000_000;
+    }
+
+    @Override
+    public long getScriptDurationMaxMillis() {
+        return scriptDurations.getMax() / 1_000_000;
+    }
+
+    @Override
+    public long getStatementDurationP50Micros() {
+        return statementDurations.percentile(0.5) / 1_000;
+    }
+
+    @Override
+    public long getStatementDurationP99Micros() {
+        return statementDurations.percentile(0.99) / 1_000;
+    }
+
+    @Override
+    public long getStatementDurationMaxMicros() {
+        return statementDurations.getMax() / 1_000;
+    }
+
+    @Override
+    public void reset() {
+        runsStarted.reset();
+        runsFailed.reset();
+        scriptsExecuted.reset();
+        scriptsFailed.reset();
+        statementsExecuted.reset();
+        rowsAffected.reset();
+        bytesRead.reset();
+        scriptDurations.reset();
+        statementDurations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsCollector{" +
+                "name='" + name + '\'' +
+                ", runsStarted=" + getRunsStarted() +
+                ", runsFailed=" + getRunsFailed() +
+                ", scriptsExecuted=" + getScriptsExecuted() +
+                ", scriptsFailed=" + getScriptsFailed() +
+                ", statementsExecuted=" + getStatementsExecuted() +
+                ", rowsAffected=" + getRowsAffected() +
+                ", bytesRead=" + getBytesRead() +
+                ", scriptDurations=" + scriptDurations +
+                ", statementDurations=" + statementDurations +
+                '}';
+    }
+
+    /**
+     * 耗时直方图
+     *
+     * <p>按2的幂划分64个桶，第i个桶记录[2^i, 2^(i+1))纳秒的耗时(第0个桶包含0)，记录操作无锁且不分配对象；
+     * 百分位数取所在桶的上界(不超过最大值)，相对误差不超过一倍。</p>
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * 记录一次耗时
+         *
+         * @param nanos 耗时(纳秒)，负数按0处理
+         */
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private static int bucketOf(long value) {
+            return value == 0 ? 0 : 63 - Long.numberOfLeadingZeros(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @param quantile 分位，取值(0, 1]
+         * @return 近似百分位数(纳秒)，没有记录时为0
+         */
+        public long percentile(double quantile) {
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    long upper = i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + getCount() +
+                    ", sum=" + getSum() +
+                    ", p50=" + percentile(0.5) +
+                    ", p99=" + percentile(0.99) +
+                    ", max=" + getMax() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package czhao.open.footprint.versionctl.listener;
+
+/**
+ * 内存指标收集器的JMX管理接口
+ *
+ * <p>耗时单位：sql脚本为毫秒，SQL语句为微秒；百分位数为近似值(按2的幂分桶)。</p>
+ *
+ * @author zhaochun
+ */
+public interface MetricsCollectorMBean {
+
+    long getRunsStarted();
+
+    long getRunsFailed();
+
+    /**
+     * @return 当前正在执行的任务名，没有时为空字符串
+     */
+    String getCurrentTask();
+
+    /**
+     * @return 当前正在执行的sql脚本文件名
+     */
+    String[] getRunningScripts();
+
+    long getScriptsExecuted();
+
+    long getScriptsFailed();
+
+    long getStatementsExecuted();
+
+    long getRowsAffected();
+
+    long getBytesRead();
+
+    long getScriptDurationP50Millis();
+
+    long getScriptDurationP99Millis();
+
+    long getScriptDurationMaxMillis();
+
+    long getStatementDurationP50Micros();
+
+    long getStatementDurationP99Micros();
+
+    long getStatementDurationMaxMicros();
+
+    /**
+     * 清零所有计数与直方图，不影响正在执行的sql脚本列表
+     */
+    void reset();
+}
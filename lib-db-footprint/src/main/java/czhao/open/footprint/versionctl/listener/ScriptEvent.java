@@ -0,0 +1,70 @@
+package czhao.open.footprint.versionctl.listener;
+
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+/**
+ * sql脚本执行事件
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class ScriptEvent {
+    // sql脚本
+    private final SQLScriptEntity script;
+    // 脚本执行耗时(纳秒)，包含版本记录的插入与更新
+    private final long durationNanos;
+    // 已执行成功的SQL语句数
+    private final int statementCount;
+    // 已读取的脚本字节数
+    private final long bytesRead;
+    // 影响行数合计，驱动没有返回影响行数的语句不计入
+    private final long rowsAffected;
+    // 脚本执行失败时的异常，成功时为null
+    private final Throwable error;
+
+    public ScriptEvent(SQLScriptEntity script, long durationNanos, int statementCount, long bytesRead, long rowsAffected,
+                       Throwable error) {
+        this.script = script;
+        this.durationNanos = durationNanos;
+        this.statementCount = statementCount;
+        this.bytesRead = bytesRead;
+        this.rowsAffected = rowsAffected;
+        this.error = error;
+    }
+
+    public SQLScriptEntity getScript() {
+        return script;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptEvent{" +
+                "fileName='" + script.getFileName() + '\'' +
+                ", durationNanos=" + durationNanos +
+                ", statementCount=" + statementCount +
+                ", bytesRead=" + bytesRead +
+                ", rowsAffected=" + rowsAffected +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package czhao.open.footprint.versionctl.listener;
+
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+
+/**
+ * SQL语句执行事件
+ *
+ * @author zhaochun
+ */
+@SuppressWarnings("unused")
+public class StatementEvent {
+    // 语句所在sql脚本
+    private final SQLScriptEntity script;
+    // 语句在脚本中的序号，从1开始
+    private final int ordinal;
+    // SQL语句
+    private final String sql;
+    // 语句执行耗时(纳秒)，批量执行时为批次耗时的平均值
+    private final long durationNanos;
+    // 影响行数，驱动没有返回时为-1
+    private final long updateCount;
+    // 是否批量执行
+    private final boolean batched;
+
+    public StatementEvent(SQLScriptEntity script, int ordinal, String sql, long durationNanos, long updateCount,
+                          boolean batched) {
+        this.script = script;
+        this.ordinal = ordinal;
+        this.sql = sql;
+        this.durationNanos = durationNanos;
+        this.updateCount = updateCount;
+        this.batched = batched;
+    }
+
+    public SQLScriptEntity getScript() {
+        return script;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public boolean isBatched() {
+        return batched;
+    }
+}
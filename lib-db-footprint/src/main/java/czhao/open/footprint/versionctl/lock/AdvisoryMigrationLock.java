@@ -0,0 +1,66 @@
+package czhao.open.footprint.versionctl.lock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 基于MySQL用户级锁(GET_LOCK/RELEASE_LOCK)的集群互斥锁
+ *
+ * <p>用户级锁与会话绑定，持有锁的实例崩溃或连接断开时由数据库自动释放，不会残留。</p>
+ * <p>锁名在整个MySQL服务内有效，因此由database名与数据库版本控制表名组成，超过64字符时截取并附加哈希值。</p>
+ *
+ * @author zhaochun
+ */
+public class AdvisoryMigrationLock implements MigrationLock {
+    // MySQL用户级锁名的最大长度
+    private static final int MAX_LOCK_NAME_LENGTH = 64;
+
+    private final String dbVersionTableName;
+    private String lockName;
+
+    /**
+     * AdvisoryMigrationLock构造方法
+     *
+     * @param dbVersionTableName 数据库版本控制表名
+     */
+    public AdvisoryMigrationLock(String dbVersionTableName) {
+        this.dbVersionTableName = dbVersionTableName;
+    }
+
+    @Override
+    public boolean tryAcquire(Connection connection) throws SQLException {
+        if (this.lockName == null) {
+            this.lockName = makeLockName(connection.getCatalog());
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            ps.setString(1, this.lockName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, this.lockName);
+            ps.executeQuery().close();
+        }
+    }
+
+    private String makeLockName(String catalog) {
+        String name = "footprint." + (catalog == null ? "" : catalog + ".") + this.dbVersionTableName;
+        if (name.length() <= MAX_LOCK_NAME_LENGTH) {
+            return name;
+        }
+        String hash = Integer.toHexString(name.hashCode());
+        return name.substring(0, MAX_LOCK_NAME_LENGTH - hash.length() - 1) + "#" + hash;
+    }
+
+    @Override
+    public String toString() {
+        return "AdvisoryMigrationLock{lockName='" + lockName + "'}";
+    }
+}
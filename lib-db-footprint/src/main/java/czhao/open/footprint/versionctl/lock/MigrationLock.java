@@ -0,0 +1,32 @@
+package czhao.open.footprint.versionctl.lock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 数据库版本控制的集群互斥锁
+ *
+ * <p>多个服务实例同时启动时，只有取得锁的实例执行操作模式判断与任务链，其他实例等待锁释放后再检查数据库版本是否已是最新。</p>
+ * <p>锁在上下文的JDBC连接上获取与释放，该连接在一次执行中始终不变。</p>
+ *
+ * @author zhaochun
+ */
+public interface MigrationLock {
+
+    /**
+     * 尝试获取锁，不等待
+     *
+     * @param connection JDBC连接
+     * @return 是否取得锁
+     * @throws SQLException SQL异常
+     */
+    boolean tryAcquire(Connection connection) throws SQLException;
+
+    /**
+     * 释放锁
+     *
+     * @param connection 获取锁时使用的JDBC连接
+     * @throws SQLException SQL异常
+     */
+    void release(Connection connection) throws SQLException;
+}
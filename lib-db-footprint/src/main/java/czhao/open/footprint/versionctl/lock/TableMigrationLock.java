@@ -0,0 +1,88 @@
+package czhao.open.footprint.versionctl.lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 基于锁表的集群互斥锁，适用于不支持用户级锁的数据库
+ *
+ * <p>锁表为"[dbVersionTableName]_lock"，以锁名为主键，插入成功即取得锁，删除自己插入的行即释放锁。</p>
+ * <p>持有锁的实例崩溃时锁行会残留，其他实例会一直等待到超时，此时需要人工删除锁表中的记录。</p>
+ *
+ * @author zhaochun
+ */
+public class TableMigrationLock implements MigrationLock {
+    private static final Logger logger = LoggerFactory.getLogger(TableMigrationLock.class);
+
+    /**
+     * 锁表名后缀
+     */
+    public static final String LOCK_TABLE_SUFFIX = "_lock";
+
+    // 锁名，每个数据库版本控制表只有一把锁
+    private static final String LOCK_NAME = "footprint";
+
+    private final String lockTableName;
+    // 锁的持有者标识，进程名(pid@host)加对象哈希，用于只删除自己的锁行
+    private final String owner;
+    private boolean tableReady = false;
+
+    /**
+     * TableMigrationLock构造方法
+     *
+     * @param dbVersionTableName 数据库版本控制表名
+     */
+    public TableMigrationLock(String dbVersionTableName) {
+        this.lockTableName = dbVersionTableName + LOCK_TABLE_SUFFIX;
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "#" + Integer.toHexString(System.identityHashCode(this));
+        this.owner = owner.length() > 200 ? owner.substring(0, 200) : owner;
+    }
+
+    @Override
+    public boolean tryAcquire(Connection connection) throws SQLException {
+        if (!this.tableReady) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + this.lockTableName
+                        + " (lock_name VARCHAR(50) NOT NULL, owner VARCHAR(200) NOT NULL, locked_at BIGINT NOT NULL, PRIMARY KEY (lock_name))");
+            }
+            this.tableReady = true;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO " + this.lockTableName + " (lock_name, owner, locked_at) VALUES (?, ?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setString(2, this.owner);
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            // SQLState 23xxx为完整性约束冲突，即锁已被其他实例持有
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM " + this.lockTableName + " WHERE lock_name = ? AND owner = ?")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setString(2, this.owner);
+            if (ps.executeUpdate() == 0) {
+                logger.warn("锁表 {} 中没有本实例 {} 持有的锁.", this.lockTableName, this.owner);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TableMigrationLock{lockTableName='" + lockTableName + "', owner='" + owner + "'}";
+    }
+}
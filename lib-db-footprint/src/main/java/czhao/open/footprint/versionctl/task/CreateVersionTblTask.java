@@ -24,6 +24,8 @@ public class CreateVersionTblTask extends DbVersionCtlAbstractTask {
         List<String> sqls = readCreateSql();
         // 执行建表文
         this.jdbcUtil.executeWithConnection(this.connection, sqls);
+        // 开启了语句日志时，在数据库版本控制表旁创建语句日志表
+        createStatementLogTableIfEnabled();
         logger.info("CreateVersionTblTask end...");
         return true;
     }
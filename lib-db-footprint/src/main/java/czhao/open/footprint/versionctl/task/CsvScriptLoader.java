@@ -0,0 +1,161 @@
+package czhao.open.footprint.versionctl.task;
+
+import czhao.open.footprint.utils.CsvScript;
+import czhao.open.footprint.utils.StatementObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.Collections;
+
+/**
+ * CSV数据导入脚本加载器
+ *
+ * <p>将CSV脚本的数据行导入其头部指定的目标表：</p>
+ * <p>1. 默认使用"INSERT INTO 表名 (字段列表) VALUES (?, ...)"的PreparedStatement批量插入，
+ * 每[batchSize]行执行一次，字段值一律按字符串绑定，由数据库转换为字段类型；</p>
+ * <p>2. 开启LOAD DATA时，若JDBC驱动为MySQL Connector/J，则将头部之后的数据部分作为输入流交给
+ * "LOAD DATA LOCAL INFILE"一次导入，不经过客户端解析；驱动不支持时使用批量插入。</p>
+ * <p>每次批量插入或LOAD DATA作为一条语句通知给语句执行观察者。</p>
+ *
+ * @author zhaochun
+ */
+class CsvScriptLoader {
+    private static final Logger logger = LoggerFactory.getLogger(CsvScriptLoader.class);
+    // 支持setLocalInfileInputStream的MySQL Connector/J语句接口，依次为8.x与5.x
+    private static final String[] MYSQL_STATEMENT_CLASSES = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+
+    private final Connection connection;
+    private final int batchSize;
+    private final boolean loadData;
+
+    CsvScriptLoader(Connection connection, int batchSize, boolean loadData) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+        this.loadData = loadData;
+    }
+
+    /**
+     * 导入CSV脚本的全部数据行
+     *
+     * @param csvScript CSV脚本，头部已解析
+     * @param observer  语句执行观察者
+     * @return 导入的行数
+     */
+    long load(CsvScript csvScript, StatementObserver observer) {
+        try {
+            if (loadData) {
+                long rows = loadDataLocalInfile(csvScript, observer);
+                if (rows >= 0) {
+                    return rows;
+                }
+                logger.warn("JDBC驱动不支持LOAD DATA LOCAL INFILE的输入流, 使用批量INSERT导入.");
+            }
+            return insertBatches(csvScript, observer);
+        } catch (SQLException e) {
+            throw new RuntimeException("csv script load fail at line " + csvScript.getLineNumber() + ".", e);
+        }
+    }
+
+    private long insertBatches(CsvScript csvScript, StatementObserver observer) throws SQLException {
+        int columnCount = csvScript.getColumns().size();
+        String sql = "INSERT INTO " + csvScript.getTable() + " (" + String.join(", ", csvScript.getColumns())
+                + ") VALUES (" + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+        long rows = 0;
+        try (PreparedStatement statement = this.connection.prepareStatement(sql)) {
+            int pending = 0;
+            String[] record;
+            while ((record = csvScript.nextRecord()) != null) {
+                if (record.length != columnCount) {
+                    throw new RuntimeException("csv script line " + csvScript.getLineNumber() + " has " + record.length
+                            + " fields, but the column header has " + columnCount + "!");
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    if (record[i] == null) {
+                        statement.setNull(i + 1, Types.VARCHAR);
+                    } else {
+                        statement.setString(i + 1, record[i]);
+                    }
+                }
+                statement.addBatch();
+                if (++pending >= this.batchSize) {
+                    rows += executeBatch(statement, sql, pending, observer);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                rows += executeBatch(statement, sql, pending, observer);
+            }
+        }
+        return rows;
+    }
+
+    private static long executeBatch(PreparedStatement statement, String sql, int pending, StatementObserver observer) throws SQLException {
+        observer.beforeStatement(sql);
+        long start = System.nanoTime();
+        int[] counts = statement.executeBatch();
+        long rows = 0;
+        for (int count : counts) {
+            // 驱动不返回影响行数(SUCCESS_NO_INFO)时按1行计算
+            rows += count >= 0 ? count : 1;
+        }
+        observer.afterStatement(sql, System.nanoTime() - start, rows, true);
+        logger.debug("csv script batch inserted {} rows.", pending);
+        return rows;
+    }
+
+    /**
+     * 使用LOAD DATA LOCAL INFILE导入
+     *
+     * @return 导入的行数，JDBC驱动不支持时返回-1
+     */
+    private long loadDataLocalInfile(CsvScript csvScript, StatementObserver observer) throws SQLException {
+        String sql = "LOAD DATA LOCAL INFILE 'footprint.csv' INTO TABLE " + csvScript.getTable()
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '" + (csvScript.getDelimiter() == '\t' ? "\\t" : csvScript.getDelimiter())
+                + "' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '' LINES TERMINATED BY '" + (csvScript.isCrlf() ? "\\r\\n" : "\\n")
+                + "' (" + String.join(", ", csvScript.getColumns()) + ")";
+        try (Statement statement = this.connection.createStatement()) {
+            if (!setLocalInfileInputStream(statement, csvScript.getDataStream())) {
+                return -1;
+            }
+            observer.beforeStatement(sql);
+            long start = System.nanoTime();
+            long rows = statement.executeUpdate(sql);
+            observer.afterStatement(sql, System.nanoTime() - start, rows, false);
+            return rows;
+        }
+    }
+
+    /**
+     * 通过反射调用MySQL Connector/J语句的setLocalInfileInputStream，不直接依赖MySQL驱动
+     *
+     * @return 是否设置成功
+     */
+    private static boolean setLocalInfileInputStream(Statement statement, InputStream inputStream) throws SQLException {
+        for (String className : MYSQL_STATEMENT_CLASSES) {
+            Class<?> mysqlStatementClass;
+            try {
+                mysqlStatementClass = Class.forName(className, false, statement.getClass().getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+            if (!statement.isWrapperFor(mysqlStatementClass)) {
+                continue;
+            }
+            Object mysqlStatement = statement.unwrap(mysqlStatementClass);
+            try {
+                Method method = mysqlStatementClass.getMethod("setLocalInfileInputStream", InputStream.class);
+                method.invoke(mysqlStatement, inputStream);
+                return true;
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return false;
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return false;
+    }
+}
@@ -1,26 +1,32 @@
 package czhao.open.footprint.versionctl.task;
 
+import czhao.open.footprint.utils.CsvScript;
+import czhao.open.footprint.utils.InsertCoalescer;
 import czhao.open.footprint.utils.ScriptReader;
+import czhao.open.footprint.utils.StatementObserver;
+import czhao.open.footprint.versionctl.BusinessSpaceScheduler;
+import czhao.open.footprint.versionctl.SQLScriptCatalog;
+import czhao.open.footprint.versionctl.SQLScriptScanner;
 import czhao.open.footprint.versionctl.chain.DbVersionCtlAbstractTask;
 import czhao.open.footprint.versionctl.chain.DbVersionCtlContext;
+import czhao.open.footprint.versionctl.entity.DbVersionCtlStatistics.Phase;
 import czhao.open.footprint.versionctl.entity.DbVersionEntity;
 import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.io.support.ResourcePatternResolver;
+import czhao.open.footprint.versionctl.listener.DbVersionCtlListeners;
+import czhao.open.footprint.versionctl.listener.ScriptEvent;
+import czhao.open.footprint.versionctl.listener.StatementEvent;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 任务:查找并执行增量SQL并记录数据库版本
@@ -41,19 +47,20 @@ public class IncreaseVersionTask extends DbVersionCtlAbstractTask {
         // 生成数据库版本插入SQL语句
         String insertSql = this.context.makeInsertSql();
 
-        // 获取数据库版本升级SQL脚本目录集合
-        List<String> scriptDirPaths = this.context.getDbVersionCtlProps().makeScriptDirPaths();
-        logger.debug("IncreaseVersionTask scriptDirPaths:{}", scriptDirPaths);
+        // 生成sql脚本对象集合，上下文中已有时(检查脚本集合指纹时已经查找过)直接使用
+        List<SQLScriptEntity> sqlByBs = this.context.getSqlScriptEntities();
+        if (sqlByBs == null) {
+            long start = System.nanoTime();
+            sqlByBs = new SQLScriptScanner(this.context.getDbVersionCtlProps()).scan();
+            this.context.getStatistics().addPhaseNanos(Phase.DISCOVERY, System.nanoTime() - start);
+        }
 
-        // 生成sql脚本对象集合
-        List<SQLScriptEntity> sqlByBs = createSqlScriptEntities(scriptDirPaths);
+        // 开启了语句日志时确认语句日志表存在(已有版本控制表的增量部署不会经过建表任务)
+        createStatementLogTableIfEnabled();
 
         // 执行脚本升级数据库版本
         increaseDbVersion(insertSql, sqlByBs);
 
-        // 关闭所有输入流
-        sqlByBs.forEach(SQLScriptEntity::closeInputStream);
-
         logger.info("IncreaseVersionTask end...");
         return true;
     }
@@ -61,141 +68,319 @@ public class IncreaseVersionTask extends DbVersionCtlAbstractTask {
     private void increaseDbVersion(String insertSql, List<SQLScriptEntity> sqlByBs) {
         String updateSql = this.context.makeUpdateSql();
 
-        Map<String, List<SQLScriptEntity>> sqlGrpByBs = sqlByBs.stream()
-                .collect(Collectors.groupingBy(SQLScriptEntity::getBusinessSpace));
-        for (Map.Entry<String, List<SQLScriptEntity>> gp : sqlGrpByBs.entrySet()) {
-            List<DbVersionEntity> dbVersionEntities = queryDbVersionEntities(gp.getKey());
-            int curMajor;
-            int curMinor;
-            int curPatch;
-            int curExtend;
-            if (!dbVersionEntities.isEmpty()) {
-                curMajor = dbVersionEntities.get(0).getMajorVersion();
-                curMinor = dbVersionEntities.get(0).getMinorVersion();
-                curPatch = dbVersionEntities.get(0).getPatchVersion();
-                curExtend = dbVersionEntities.get(0).getExtendVersion();
-            } else {
-                curMajor = 0;
-                curMinor = 0;
-                curPatch = 0;
-                curExtend = 0;
-            }
-            @SuppressWarnings("SimplifyStreamApiCallChains")
-            List<SQLScriptEntity> sqlScriptEntities = gp.getValue().stream()
-                    .filter(sqlScriptEntity -> sqlScriptEntity.checkNeed(curMajor, curMinor, curPatch, curExtend))
-                    .sorted(SQLScriptEntity::compareTo)
-                    .collect(Collectors.toList());
-            if (sqlScriptEntities.isEmpty()) {
-                logger.info("业务空间 {} 没有增量sql脚本需要执行.", gp.getKey());
-                continue;
+        // 按业务空间构建已排序的脚本目录，增量脚本通过二分查找选取
+        SQLScriptCatalog catalog = SQLScriptCatalog.of(sqlByBs);
+        // 一次查询取得所有业务空间的最新版本，上下文中已有时(监视模式)直接使用
+        Map<String, DbVersionEntity> latestVersions = this.context.getLatestVersions();
+        long start = System.nanoTime();
+        if (latestVersions == null) {
+            latestVersions = queryLatestDbVersions();
+            this.context.setLatestVersions(latestVersions);
+            this.context.getStatistics().addPhaseNanos(Phase.VERSION_LOOKUP, System.nanoTime() - start);
+        }
+        start = System.nanoTime();
+        if ("y".equals(this.context.getDbVersionCtlProps().getParallelBusinessSpace()) && catalog.getBusinessSpaces().size() > 1) {
+            increaseDbVersionParallel(insertSql, updateSql, catalog, latestVersions);
+        } else {
+            for (String bs : catalog.getBusinessSpaces()) {
+                increaseBusinessSpace(this.connection, insertSql, updateSql, bs, catalog.pending(bs, latestVersions.get(bs)));
             }
-            sqlScriptEntities.forEach(sqlScriptEntity -> {
-                logger.info("增量执行脚本:{}", sqlScriptEntity.getFileName());
-
-                // 读取脚本内容
-                ScriptReader scriptReader = new ScriptReader(sqlScriptEntity.getInputStream());
-                List<String> sqls = scriptReader.readSqls();
-
-                // 开始时间
-                LocalDateTime startTime = LocalDateTime.now();
-
-                // 插入版本记录
-                this.jdbcUtil.execute(this.connection, insertSql,
-                        sqlScriptEntity.getBusinessSpace(), sqlScriptEntity.getMajorVersion(),
-                        sqlScriptEntity.getMinorVersion(), sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion(),
-                        sqlScriptEntity.getVersion(), sqlScriptEntity.getCustomName(),
-                        "SQL", sqlScriptEntity.getFileName(), "none", 0, -1,
-                        DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(startTime),
-                        this.context.getDbVersionCtlProps().getUsername());
-
-                // 执行脚本
-                this.jdbcUtil.executeWithConnection(this.connection, sqls);
-                LocalDateTime stopTime = LocalDateTime.now();
-                long mills = Duration.between(startTime, stopTime).toMillis();
-                logger.info("sql脚本 {} 执行耗时 : {} ms.", sqlScriptEntity.getFileName(), mills);
-
-                // 更新版本记录
-                this.jdbcUtil.execute(this.connection, updateSql,
-                        mills, sqlScriptEntity.getBusinessSpace(),
-                        sqlScriptEntity.getMajorVersion(), sqlScriptEntity.getMinorVersion(),
-                        sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion());
-                logger.info("数据库版本记录更新, business_space: {} , major_version: {} , minor_version: {} , patch_version: {} , extend_version: {} .",
-                        sqlScriptEntity.getBusinessSpace(), sqlScriptEntity.getMajorVersion(),
-                        sqlScriptEntity.getMinorVersion(), sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion());
-            });
         }
+        this.context.getStatistics().addPhaseNanos(Phase.EXECUTION, System.nanoTime() - start);
     }
 
-    private List<SQLScriptEntity> createSqlScriptEntities(List<String> scriptDirPaths) {
-        List<SQLScriptEntity> sqlByBs = new ArrayList<>();
+    /**
+     * 按业务空间并行执行增量sql脚本
+     *
+     * <p>每个业务空间在工作线程中使用连接池中各自的JDBC连接执行；</p>
+     * <p>配置了执行顺序依赖的业务空间，须等待其依赖的业务空间全部执行成功后才开始执行。</p>
+     *
+     * @param insertSql  数据库版本插入SQL语句
+     * @param updateSql  数据库版本更新SQL语句
+     * @param catalog    按业务空间划分的sql脚本目录
+     * @param latestVersions 各个业务空间的最新版本
+     */
+    private void increaseDbVersionParallel(String insertSql, String updateSql, SQLScriptCatalog catalog,
+                                           Map<String, DbVersionEntity> latestVersions) {
+        Set<String> businessSpaces = catalog.getBusinessSpaces();
+        int workers = Math.min(this.context.getDbVersionCtlProps().getParallelWorkers(), businessSpaces.size());
+        Map<String, List<String>> dependencies = this.context.getDbVersionCtlProps().makeBusinessSpaceDependencies();
+        logger.info("按业务空间并行执行增量sql脚本, 业务空间数: {} , 工作线程数: {} , 依赖关系: {}", businessSpaces.size(), workers, dependencies);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "footprint-bs-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            for (String scriptDirPath : scriptDirPaths) {
-                if (scriptDirPath.startsWith("classpath:")) {
-                    readSqlFromClassPath(sqlByBs, scriptDirPath);
-                } else {
-                    readSqlFromFile(sqlByBs, scriptDirPath);
+            Map<String, CompletableFuture<Void>> futures = new BusinessSpaceScheduler(dependencies).submit(businessSpaces,
+                    bs -> increaseBusinessSpaceWithOwnConnection(insertSql, updateSql, bs, catalog.pending(bs, latestVersions.get(bs))),
+                    executor);
+            // 等待所有业务空间结束(无论成功与否)，再统一抛出异常
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void increaseBusinessSpaceWithOwnConnection(String insertSql, String updateSql, String bs, List<SQLScriptEntity> sqlScriptEntities) {
+        try (Connection bsConnection = this.jdbcUtil.getConnection()) {
+            bsConnection.setAutoCommit(true);
+            try {
+                increaseBusinessSpace(bsConnection, insertSql, updateSql, bs, sqlScriptEntities);
+            } finally {
+                this.jdbcUtil.closeStatementCache(bsConnection);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 依次执行一个业务空间的增量sql脚本
+     *
+     * @param sqlScriptEntities 按版本号升序排列的增量sql脚本
+     */
+    private void increaseBusinessSpace(Connection bsConnection, String insertSql, String updateSql, String bs,
+                                       List<SQLScriptEntity> sqlScriptEntities) {
+        if (sqlScriptEntities.isEmpty()) {
+            logger.info("业务空间 {} 没有增量sql脚本需要执行.", bs);
+            return;
+        }
+        DbVersionCtlListeners listeners = this.context.getListeners();
+        StatementLogWriter statementLogWriter = "y".equals(this.context.getDbVersionCtlProps().getStatementLog())
+                ? new StatementLogWriter(this.jdbcUtil, bsConnection, this.context.makeStatementLogInsertSql(),
+                this.context.getDbVersionCtlProps().getStatementLogBatchSize())
+                : null;
+        sqlScriptEntities.forEach(sqlScriptEntity -> {
+            logger.info("增量执行脚本:{}", sqlScriptEntity.getFileName());
+            listeners.onScriptStart(sqlScriptEntity);
+            long scriptStart = System.nanoTime();
+            // 开始时间
+            LocalDateTime startTime = LocalDateTime.now();
+            ScriptStatementObserver observer = new ScriptStatementObserver(sqlScriptEntity, listeners, statementLogWriter,
+                    DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(startTime));
+            boolean csv = SQLScriptEntity.SCRIPT_TYPE_CSV.equals(sqlScriptEntity.getScriptType());
+            ScriptReader scriptReader = csv ? null : sqlScriptEntity.createScriptReader();
+            CsvScript csvScript = csv ? openCsvScript(sqlScriptEntity) : null;
+            try {
+                executeScript(bsConnection, insertSql, updateSql, sqlScriptEntity, startTime, csv
+                        ? () -> loadCsvScript(bsConnection, sqlScriptEntity, csvScript, observer)
+                        : () -> executeSqlScript(bsConnection, sqlScriptEntity, scriptReader, observer));
+            } catch (RuntimeException e) {
+                listeners.onScriptEnd(new ScriptEvent(sqlScriptEntity, System.nanoTime() - scriptStart,
+                        observer.completed, bytesRead(scriptReader, csvScript), observer.rowsAffected, e));
+                throw e;
+            } finally {
+                if (csvScript != null) {
+                    csvScript.close();
+                }
+                // 脚本失败时也写入已执行语句的日志，便于定位问题语句
+                if (statementLogWriter != null) {
+                    statementLogWriter.flush();
                 }
             }
+            // 更新已知的最新版本，后续执行(监视模式)不再重复查询
+            this.context.getLatestVersions().put(bs, toDbVersionEntity(sqlScriptEntity));
+            listeners.onScriptEnd(new ScriptEvent(sqlScriptEntity, System.nanoTime() - scriptStart,
+                    observer.completed, bytesRead(scriptReader, csvScript), observer.rowsAffected, null));
+        });
+    }
+
+    private static CsvScript openCsvScript(SQLScriptEntity sqlScriptEntity) {
+        try {
+            return new CsvScript(sqlScriptEntity.getScriptSource().openScriptStream());
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            throw new RuntimeException(sqlScriptEntity.getFileName() + " : " + e.getMessage(), e);
         }
-        return sqlByBs;
     }
 
-    private void readSqlFromClassPath(List<SQLScriptEntity> sqlByBs, String scriptDirPath) throws IOException {
-        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-        String pathPattern = scriptDirPath.endsWith("/") ? scriptDirPath + "*.sql" : scriptDirPath + "/*.sql";
-        Resource[] resources = resolver.getResources(pathPattern);
-        for (Resource resource : resources) {
-            sqlByBs.add(new SQLScriptEntity(resource.getFilename(), resource.getInputStream()));
+    private static long bytesRead(ScriptReader scriptReader, CsvScript csvScript) {
+        return scriptReader != null ? scriptReader.getBytesRead() : csvScript.getBytesRead();
+    }
+
+    private static DbVersionEntity toDbVersionEntity(SQLScriptEntity sqlScriptEntity) {
+        DbVersionEntity dbVersionEntity = new DbVersionEntity();
+        dbVersionEntity.setBusinessSpace(sqlScriptEntity.getBusinessSpace());
+        dbVersionEntity.setMajorVersion(sqlScriptEntity.getMajorVersion());
+        dbVersionEntity.setMinorVersion(sqlScriptEntity.getMinorVersion());
+        dbVersionEntity.setPatchVersion(sqlScriptEntity.getPatchVersion());
+        dbVersionEntity.setExtendVersion(sqlScriptEntity.getExtendVersion());
+        return dbVersionEntity;
+    }
+
+    /**
+     * 插入版本记录，执行脚本内容，然后更新版本记录
+     *
+     * @param body 执行脚本内容，返回脚本内容摘要
+     */
+    private void executeScript(Connection bsConnection, String insertSql, String updateSql, SQLScriptEntity sqlScriptEntity,
+                               LocalDateTime startTime, Supplier<String> body) {
+        // 插入版本记录
+        this.jdbcUtil.execute(bsConnection, insertSql,
+                sqlScriptEntity.getBusinessSpace(), sqlScriptEntity.getMajorVersion(),
+                sqlScriptEntity.getMinorVersion(), sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion(),
+                sqlScriptEntity.getVersion(), sqlScriptEntity.getCustomName(),
+                sqlScriptEntity.getScriptType(), sqlScriptEntity.getFileName(), "none", 0, -1,
+                DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(startTime),
+                this.context.getInstallUser());
+
+        String digestHex = body.get();
+        LocalDateTime stopTime = LocalDateTime.now();
+        long mills = Duration.between(startTime, stopTime).toMillis();
+        logger.info("脚本 {} 执行耗时 : {} ms.", sqlScriptEntity.getFileName(), mills);
+
+        // 更新版本记录
+        this.jdbcUtil.execute(bsConnection, updateSql,
+                mills, digestHex, sqlScriptEntity.getBusinessSpace(),
+                sqlScriptEntity.getMajorVersion(), sqlScriptEntity.getMinorVersion(),
+                sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion());
+        this.context.getStatistics().incrementExecutedScripts();
+        logger.info("数据库版本记录更新, business_space: {} , major_version: {} , minor_version: {} , patch_version: {} , extend_version: {} .",
+                sqlScriptEntity.getBusinessSpace(), sqlScriptEntity.getMajorVersion(),
+                sqlScriptEntity.getMinorVersion(), sqlScriptEntity.getPatchVersion(), sqlScriptEntity.getExtendVersion());
+    }
+
+    /**
+     * 边读取边执行sql脚本中的SQL语句，同时计算脚本内容摘要
+     *
+     * @return 脚本内容摘要
+     */
+    private String executeSqlScript(Connection bsConnection, SQLScriptEntity sqlScriptEntity, ScriptReader scriptReader,
+                                    StatementObserver observer) {
+        scriptReader.enableDigest();
+        try (Stream<String> sqls = scriptReader.streamSqls()) {
+            if ("y".equals(this.context.getDbVersionCtlProps().getInsertCoalesce())) {
+                // 连续的单行INSERT语句合并为多行INSERT语句执行
+                InsertCoalescer coalescer = new InsertCoalescer(sqls.iterator(), this.context.getDbVersionCtlProps().getInsertCoalesceMaxBytes());
+                executeSqls(bsConnection, () -> coalescer, observer);
+                if (coalescer.getInputCount() > coalescer.getOutputCount()) {
+                    logger.info("sql脚本 {} 的 {} 条语句合并为 {} 条执行.", sqlScriptEntity.getFileName(),
+                            coalescer.getInputCount(), coalescer.getOutputCount());
+                }
+            } else {
+                executeSqls(bsConnection, sqls::iterator, observer);
+            }
+        }
+        return Optional.ofNullable(scriptReader.getDigestHex()).orElse("none");
+    }
+
+    /**
+     * 将CSV数据导入脚本的数据行导入目标表，同时计算脚本内容摘要
+     *
+     * @return 脚本内容摘要
+     */
+    private String loadCsvScript(Connection bsConnection, SQLScriptEntity sqlScriptEntity, CsvScript csvScript,
+                                 StatementObserver observer) {
+        CsvScriptLoader loader = new CsvScriptLoader(bsConnection, this.context.getDbVersionCtlProps().getCsvBatchSize(),
+                "y".equals(this.context.getDbVersionCtlProps().getCsvLoadData()));
+        long rows;
+        try {
+            rows = loader.load(csvScript, observer);
+        } catch (RuntimeException e) {
+            throw new RuntimeException(sqlScriptEntity.getFileName() + " : " + e.getMessage(), e);
         }
+        logger.info("csv脚本 {} 向 {} 导入 {} 行数据.", sqlScriptEntity.getFileName(), csvScript.getTable(), rows);
+        return csvScript.getDigestHex();
     }
 
-    private void readSqlFromFile(List<SQLScriptEntity> sqlByBs, String scriptDirPath) throws FileNotFoundException {
-        File folder = new File(scriptDirPath);
-        if (folder.exists() && folder.isDirectory()) {
-            File[] files = folder.listFiles((dir, name) -> name.endsWith(".sql"));
-            if (files == null || files.length == 0) {
-                throw new RuntimeException("There is no sql files in [" + scriptDirPath + "]!");
+    private void executeSqls(Connection bsConnection, Iterable<String> sqls, StatementObserver observer) {
+        int statementWorkers = this.context.getDbVersionCtlProps().getStatementWorkers();
+        int batchSize = this.context.getDbVersionCtlProps().getBatchSize();
+        if (statementWorkers > 1) {
+            // 按表依赖关系并发执行，读写相同表的语句保持脚本中的顺序
+            this.jdbcUtil.executeConcurrentlyWithConnection(bsConnection, sqls, statementWorkers, observer);
+        } else if (batchSize > 0) {
+            this.jdbcUtil.executeBatchWithConnection(bsConnection, sqls, batchSize,
+                    "y".equals(this.context.getDbVersionCtlProps().getBatchAdaptive()), observer);
+        } else {
+            this.jdbcUtil.executeWithConnection(bsConnection, sqls, observer);
+        }
+    }
+
+    /**
+     * 单个sql脚本的SQL语句执行观察者，统计语句数与影响行数，并转发给监听器与语句日志写入器
+     *
+     * <p>语句总是按脚本中的顺序执行完成(批量执行时批次内按顺序返回结果)，因此按完成顺序计数即为语句序号；
+     * 脚本内并发执行时回调都在执行脚本的线程中按完成顺序转发，序号为完成顺序。</p>
+     */
+    private static class ScriptStatementObserver implements StatementObserver {
+        private final SQLScriptEntity script;
+        private final DbVersionCtlListeners listeners;
+        // 语句日志写入器，没有开启语句日志时为null
+        private final StatementLogWriter statementLogWriter;
+        private final String installTime;
+        private int started = 0;
+        private int completed = 0;
+        private long rowsAffected = 0;
+
+        ScriptStatementObserver(SQLScriptEntity script, DbVersionCtlListeners listeners, StatementLogWriter statementLogWriter,
+                                String installTime) {
+            this.script = script;
+            this.listeners = listeners;
+            this.statementLogWriter = statementLogWriter;
+            this.installTime = installTime;
+        }
+
+        @Override
+        public void beforeStatement(String sql) {
+            started++;
+            if (!listeners.isEmpty()) {
+                listeners.onStatementStart(script, started, sql);
             }
-            for (File file : files) {
-                sqlByBs.add(new SQLScriptEntity(file.getName(), new FileInputStream(file)));
+        }
+
+        @Override
+        public void afterStatement(String sql, long nanos, long updateCount, boolean batched) {
+            completed++;
+            if (updateCount > 0) {
+                rowsAffected += updateCount;
+            }
+            if (!listeners.isEmpty()) {
+                listeners.onStatementEnd(new StatementEvent(script, completed, sql, nanos, updateCount, batched));
+            }
+            if (statementLogWriter != null) {
+                statementLogWriter.append(script, completed, sql, nanos, updateCount, batched, installTime);
             }
-        } else {
-            throw new RuntimeException(scriptDirPath + " is not Filesystem Directory!");
         }
     }
 
-    private List<DbVersionEntity> queryDbVersionEntities(String bs) {
-        String selectSql = this.context.makeSelectSql();
+    /**
+     * 查询各个业务空间的最新版本
+     *
+     * @return 业务空间 -> 最新版本记录(只包含业务空间与版本号字段)
+     */
+    private Map<String, DbVersionEntity> queryLatestDbVersions() {
+        String selectSql = this.context.makeLatestVersionSelectSql();
 
-        List<DbVersionEntity> dbVersionEntities = new ArrayList<>();
+        // 按业务空间并行执行时会在工作线程中更新
+        Map<String, DbVersionEntity> latestVersions = new ConcurrentHashMap<>();
         try {
             this.jdbcUtil.getRunner().query(this.connection, selectSql, resultSet -> {
                 while (resultSet.next()) {
                     DbVersionEntity dbVersionEntity = new DbVersionEntity();
-                    dbVersionEntity.setId(resultSet.getInt("id"));
                     dbVersionEntity.setBusinessSpace(resultSet.getString("business_space"));
                     dbVersionEntity.setMajorVersion(resultSet.getInt("major_version"));
                     dbVersionEntity.setMinorVersion(resultSet.getInt("minor_version"));
                     dbVersionEntity.setPatchVersion(resultSet.getInt("patch_version"));
                     dbVersionEntity.setExtendVersion(resultSet.getInt("extend_version"));
-                    dbVersionEntity.setVersion(resultSet.getString("version"));
-                    dbVersionEntity.setCustomName(resultSet.getString("version"));
-                    dbVersionEntity.setVersionType(resultSet.getString("version_type"));
-                    dbVersionEntity.setScriptFileName(resultSet.getString("script_file_name"));
-                    dbVersionEntity.setScriptDigestHex(resultSet.getString("script_digest_hex"));
-                    dbVersionEntity.setSuccess(resultSet.getByte("success"));
-                    dbVersionEntity.setExecutionTime(resultSet.getInt("execution_time"));
-                    dbVersionEntity.setInstallTime(resultSet.getString("install_time"));
-                    dbVersionEntity.setInstallUser(resultSet.getString("install_user"));
-                    dbVersionEntities.add(dbVersionEntity);
+                    latestVersions.put(dbVersionEntity.getBusinessSpace(), dbVersionEntity);
                 }
                 return null;
-            }, bs);
+            });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        return dbVersionEntities;
+        logger.debug("IncreaseVersionTask latestVersions:{}", latestVersions.values());
+        return latestVersions;
     }
 }
@@ -59,7 +59,7 @@ public class InsertBaselineTask extends DbVersionCtlAbstractTask {
                 this.jdbcUtil.execute(this.connection, insertSql,
                         bs, major, minor, patch, extend, version, "none", "BaseLine", "none", "none", 1, 0,
                         DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(LocalDateTime.now()),
-                        this.context.getDbVersionCtlProps().getUsername());
+                        this.context.getInstallUser());
                 logger.info("数据库基线版本添加, business_space: {} , major_version: {} , minor_version: {} , patch_version: {}, extend_version: {} .",
                         bs, major, minor, patch, extend);
             } else {
@@ -72,7 +72,7 @@ public class InsertBaselineTask extends DbVersionCtlAbstractTask {
                     this.jdbcUtil.execute(this.connection, insertSql,
                             bs, major, minor, patch, extend, version, "none", "BaseLine", "none", "none", 1, 0,
                             DateTimeFormatter.ofPattern(DbVersionCtlContext.DATETIME_PTN).format(LocalDateTime.now()),
-                            this.context.getDbVersionCtlProps().getUsername());
+                            this.context.getInstallUser());
                     logger.info("数据库基线版本添加, business_space: {} , major_version: {} , minor_version: {} , patch_version: {}, extend_version: {} .",
                             bs, major, minor, patch, extend);
                 } else {
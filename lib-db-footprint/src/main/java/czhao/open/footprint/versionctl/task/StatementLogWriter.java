@@ -0,0 +1,83 @@
+package czhao.open.footprint.versionctl.task;
+
+import czhao.open.footprint.utils.JdbcUtil;
+import czhao.open.footprint.utils.SqlUtil;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语句日志写入器
+ *
+ * <p>在执行sql脚本的JDBC连接上，将语句日志累积到批次大小后批量写入语句日志表，脚本结束时写入剩余部分。</p>
+ * <p>语句日志只用于事后分析，写入失败时记录警告并停止写入，不影响增量sql脚本的执行。</p>
+ * <p>每个业务空间的执行线程各自持有一个写入器，非线程安全。</p>
+ *
+ * @author zhaochun
+ */
+class StatementLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StatementLogWriter.class);
+    // 归一化语句的最大保存长度，与语句日志表statement_text字段一致
+    private static final int MAX_TEXT_LENGTH = 200;
+
+    private final JdbcUtil jdbcUtil;
+    private final Connection connection;
+    private final String insertSql;
+    private final int batchSize;
+    private final List<Object[]> rows;
+    private boolean failed = false;
+
+    StatementLogWriter(JdbcUtil jdbcUtil, Connection connection, String insertSql, int batchSize) {
+        this.jdbcUtil = jdbcUtil;
+        this.connection = connection;
+        this.insertSql = insertSql;
+        this.batchSize = batchSize;
+        this.rows = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * 追加一条语句日志，累积到批次大小时批量写入
+     *
+     * @param script      语句所在sql脚本
+     * @param ordinal     语句序号
+     * @param sql         SQL语句
+     * @param nanos       语句执行耗时(纳秒)
+     * @param updateCount 影响行数
+     * @param batched     是否批量执行
+     * @param installTime 脚本安装时间
+     */
+    void append(SQLScriptEntity script, int ordinal, String sql, long nanos, long updateCount, boolean batched, String installTime) {
+        if (failed) {
+            return;
+        }
+        String normalized = SqlUtil.normalize(sql);
+        String text = normalized.length() > MAX_TEXT_LENGTH ? normalized.substring(0, MAX_TEXT_LENGTH) : normalized;
+        rows.add(new Object[]{script.getBusinessSpace(), script.getVersion(), ordinal, SqlUtil.fingerprintNormalized(normalized), text,
+                nanos / 1_000, updateCount, batched ? 1 : 0, installTime});
+        if (rows.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 批量写入已累积的语句日志
+     */
+    void flush() {
+        if (rows.isEmpty() || failed) {
+            rows.clear();
+            return;
+        }
+        try {
+            this.jdbcUtil.getRunner().batch(this.connection, this.insertSql, rows.toArray(new Object[0][]));
+        } catch (SQLException e) {
+            failed = true;
+            logger.warn("语句日志写入失败, 本业务空间后续不再记录语句日志. {}", e.getMessage());
+        }
+        rows.clear();
+    }
+}
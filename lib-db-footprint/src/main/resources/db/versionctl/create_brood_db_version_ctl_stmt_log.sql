@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS `brood_db_version_ctl_stmt_log` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '语句日志ID',
+  `business_space` VARCHAR(50) NOT NULL COMMENT '业务空间',
+  `version` VARCHAR(50) NOT NULL COMMENT '版本号,与数据库版本控制表的version一致',
+  `ordinal` INT NOT NULL COMMENT '语句在脚本中的序号,从1开始',
+  `statement_fingerprint` VARCHAR(16) NOT NULL COMMENT '归一化语句指纹(16进制),字面量不同的同类语句指纹相同',
+  `statement_text` VARCHAR(200) NOT NULL COMMENT '归一化语句,最多200字符',
+  `duration_micros` BIGINT NOT NULL COMMENT '语句执行耗时(微秒),批量执行时为批次耗时的平均值',
+  `update_count` BIGINT NOT NULL COMMENT '影响行数,-1表示驱动没有返回',
+  `batched` TINYINT NOT NULL COMMENT '是否批量执行',
+  `install_time` VARCHAR(19) NOT NULL COMMENT '脚本安装时间,格式:[yyyy-MM-dd HH:mm:ss]',
+  PRIMARY KEY (`id`),
+  INDEX `brood_db_version_ctl_stmt_log_idx01` (`business_space`, `version`, `ordinal`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT = '数据库版本控制语句执行日志表'
+;
@@ -1,4 +1,5 @@
 ALTER TABLE `brood_db_version_ctl` ADD `extend_version` INT NOT NULL DEFAULT 0 AFTER `patch_version`;
 
+-- 唯一索引同时用于查询各个业务空间的最新版本(按业务空间在索引上倒序取第一条)
 ALTER TABLE `brood_db_version_ctl` DROP KEY `brood_db_version_ctl_unique01`;
 ALTER TABLE `brood_db_version_ctl` ADD CONSTRAINT `brood_db_version_ctl_unique01` UNIQUE KEY (`business_space`,`major_version`,`minor_version`,`patch_version`,`extend_version`);
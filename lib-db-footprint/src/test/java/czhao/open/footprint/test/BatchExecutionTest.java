@@ -0,0 +1,122 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.JdbcUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 批量执行SQL语句测试用例
+ *
+ * <p>通过记录JDBC调用的连接代理检查批次与脚本自身事务的交互。</p>
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class BatchExecutionTest {
+
+    @Test
+    public void test_script_transaction_not_batched() {
+        List<String> calls = new ArrayList<>();
+        Connection connection = recordingConnection(calls);
+        JdbcUtil jdbcUtil = new JdbcUtil(proxy(DataSource.class, (method, args) -> null));
+        jdbcUtil.executeBatchWithConnection(connection, List.of(
+                "INSERT INTO t1 VALUES (1)",
+                "INSERT INTO t1 VALUES (2)",
+                "START TRANSACTION",
+                "INSERT INTO t1 VALUES (3)",
+                "UPDATE t1 SET id = 4 WHERE id = 3",
+                "ROLLBACK",
+                "INSERT INTO t1 VALUES (5)"), 10, false);
+        // 会话语句之前的DML在批次事务中执行，之后的语句逐条执行，不再切换autocommit或提交
+        Assert.assertEquals(List.of(
+                "addBatch INSERT INTO t1 VALUES (1)",
+                "addBatch INSERT INTO t1 VALUES (2)",
+                "setAutoCommit false",
+                "executeBatch",
+                "commit",
+                "setAutoCommit true",
+                "execute START TRANSACTION",
+                "execute INSERT INTO t1 VALUES (3)",
+                "execute UPDATE t1 SET id = 4 WHERE id = 3",
+                "execute ROLLBACK",
+                "execute INSERT INTO t1 VALUES (5)"), calls);
+    }
+
+    private Connection recordingConnection(List<String> calls) {
+        boolean[] autoCommit = {true};
+        return proxy(Connection.class, (method, args) -> switch (method) {
+            case "getAutoCommit" -> autoCommit[0];
+            case "setAutoCommit" -> {
+                autoCommit[0] = (Boolean) args[0];
+                calls.add("setAutoCommit " + args[0]);
+                yield null;
+            }
+            case "commit", "rollback", "releaseSavepoint" -> {
+                calls.add(method);
+                yield null;
+            }
+            case "setSavepoint" -> {
+                calls.add(method);
+                yield proxy(Savepoint.class, (m, a) -> null);
+            }
+            case "createStatement" -> recordingStatement(calls);
+            case "prepareCall" -> recordingCallableStatement(calls, (String) args[0]);
+            default -> null;
+        });
+    }
+
+    private Statement recordingStatement(List<String> calls) {
+        List<String> batch = new ArrayList<>();
+        return proxy(Statement.class, (method, args) -> switch (method) {
+            case "addBatch" -> {
+                batch.add((String) args[0]);
+                calls.add("addBatch " + args[0]);
+                yield null;
+            }
+            case "executeBatch" -> {
+                calls.add(method);
+                int[] updateCounts = new int[batch.size()];
+                Arrays.fill(updateCounts, 1);
+                yield updateCounts;
+            }
+            case "clearBatch" -> {
+                batch.clear();
+                yield null;
+            }
+            default -> null;
+        });
+    }
+
+    private CallableStatement recordingCallableStatement(List<String> calls, String sql) {
+        return proxy(CallableStatement.class, (method, args) -> switch (method) {
+            case "execute" -> {
+                calls.add("execute " + sql);
+                yield false;
+            }
+            case "getUpdateCount" -> 1;
+            case "getParameterMetaData" -> proxy(ParameterMetaData.class, (m, a) -> "getParameterCount".equals(m) ? 0 : null);
+            default -> null;
+        });
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(BatchExecutionTest.class.getClassLoader(), new Class<?>[]{type},
+                (p, method, args) -> answer.answer(method.getName(), args));
+    }
+}
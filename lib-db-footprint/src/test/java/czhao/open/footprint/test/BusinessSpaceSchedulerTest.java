@@ -0,0 +1,89 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.versionctl.BusinessSpaceScheduler;
+import czhao.open.footprint.versionctl.DbVersionCtlProps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 业务空间执行顺序依赖测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class BusinessSpaceSchedulerTest {
+
+    @Test
+    public void test_parse_dependencies() {
+        DbVersionCtlProps props = new DbVersionCtlProps();
+        Assert.assertTrue(props.makeBusinessSpaceDependencies().isEmpty());
+
+        props.setBusinessSpaceDependencies("template:smtp| base ,report : template,");
+        Map<String, List<String>> dependencies = props.makeBusinessSpaceDependencies();
+        Assert.assertEquals(List.of("template", "report"), new ArrayList<>(dependencies.keySet()));
+        Assert.assertEquals(List.of("smtp", "base"), dependencies.get("template"));
+        Assert.assertEquals(List.of("template"), dependencies.get("report"));
+
+        DbVersionCtlProps badProps = new DbVersionCtlProps();
+        badProps.setBusinessSpaceDependencies("template:smtp:base");
+        Assert.assertThrows(RuntimeException.class, badProps::makeBusinessSpaceDependencies);
+    }
+
+    @Test
+    public void test_order() {
+        BusinessSpaceScheduler scheduler = new BusinessSpaceScheduler(Map.of(
+                "template", List.of("smtp"),
+                "report", List.of("template", "audit")));
+        Assert.assertEquals(List.of("smtp", "template", "audit", "report"),
+                scheduler.order(List.of("report", "template", "smtp", "audit")));
+        // 依赖的业务空间没有需要执行的脚本时无需等待
+        Assert.assertEquals(List.of("template", "report"), scheduler.order(List.of("report", "template")));
+    }
+
+    @Test
+    public void test_submit_waits_for_dependencies() {
+        BusinessSpaceScheduler scheduler = new BusinessSpaceScheduler(Map.of(
+                "template", List.of("smtp"),
+                "report", List.of("template", "missing")));
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<String, CompletableFuture<Void>> futures = scheduler.submit(List.of("report", "template", "smtp"), bs -> {
+                if ("smtp".equals(bs)) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                finished.add(bs);
+            }, executor);
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(List.of("smtp", "template", "report"), finished);
+    }
+
+    @Test
+    public void test_circular_dependency() {
+        BusinessSpaceScheduler scheduler = new BusinessSpaceScheduler(Map.of(
+                "a", List.of("b"),
+                "b", List.of("c"),
+                "c", List.of("a")));
+        List<String> started = new ArrayList<>();
+        RuntimeException e = Assert.assertThrows(RuntimeException.class,
+                () -> scheduler.submit(List.of("d", "a", "b", "c"), started::add, Runnable::run));
+        Assert.assertTrue(e.getMessage().contains("circular dependency"));
+        // 检查循环依赖在提交任何业务空间之前
+        Assert.assertTrue(started.isEmpty());
+        // 循环中的业务空间没有需要执行的脚本时不影响其他业务空间
+        Assert.assertEquals(List.of("b", "a"), scheduler.order(List.of("a", "b")));
+    }
+}
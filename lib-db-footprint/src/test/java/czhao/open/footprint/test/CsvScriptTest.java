@@ -0,0 +1,65 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.CsvScript;
+import czhao.open.footprint.utils.DigestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV数据导入脚本阅读器测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class CsvScriptTest {
+
+    @Test
+    public void test_read_records() throws IOException {
+        String content = "\uFEFF# table: tb_country\r\n"
+                + "# note: comment\r\n"
+                + "code, name ,population\r\n"
+                + "CN,China,1411750000\r\n"
+                + "XX,\"Name, with \"\"quotes\"\"\r\nand newline\",NULL\r\n"
+                + "\r\n"
+                + "YY,\"NULL\",\r\n";
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        List<String[]> records = new ArrayList<>();
+        try (CsvScript csvScript = new CsvScript(new ByteArrayInputStream(bytes))) {
+            Assert.assertEquals("tb_country", csvScript.getTable());
+            Assert.assertEquals(List.of("code", "name", "population"), csvScript.getColumns());
+            Assert.assertTrue(csvScript.isCrlf());
+            String[] record;
+            while ((record = csvScript.nextRecord()) != null) {
+                records.add(record);
+            }
+            Assert.assertEquals(DigestUtil.digestHex(new ByteArrayInputStream(bytes)), csvScript.getDigestHex());
+            Assert.assertEquals(bytes.length, csvScript.getBytesRead());
+        }
+        Assert.assertEquals(3, records.size());
+        Assert.assertArrayEquals(new String[]{"CN", "China", "1411750000"}, records.get(0));
+        Assert.assertArrayEquals(new String[]{"XX", "Name, with \"quotes\"\r\nand newline", null}, records.get(1));
+        Assert.assertArrayEquals(new String[]{"YY", "NULL", ""}, records.get(2));
+    }
+
+    @Test
+    public void test_data_stream_after_header() throws IOException {
+        String content = "# table: t\n# delimiter: tab\na\tb\n1\t2\n";
+        try (CsvScript csvScript = new CsvScript(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            Assert.assertEquals('\t', csvScript.getDelimiter());
+            Assert.assertFalse(csvScript.isCrlf());
+            Assert.assertEquals("1\t2\n", new String(csvScript.getDataStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_missing_table() {
+        new CsvScript(new ByteArrayInputStream("a,b\n1,2\n".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,62 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.DdlPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+/**
+ * DDL执行策略测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class DdlPolicyTest {
+
+    @Test
+    public void test_online_alter_rewrite() {
+        DdlPolicy policy = new DdlPolicy(5, 60, true);
+        Assert.assertTrue(policy.appliesTo("ALTER TABLE t1 ADD COLUMN c INT"));
+        Assert.assertFalse(policy.appliesTo("INSERT INTO t1 VALUES (1)"));
+        Assert.assertEquals("ALTER TABLE t1 ADD COLUMN c INT, ALGORITHM=INPLACE, LOCK=NONE",
+                policy.rewrite("ALTER TABLE t1 ADD COLUMN c INT;\n"));
+        Assert.assertEquals("CREATE UNIQUE INDEX idx_a ON t1 (a) ALGORITHM=INPLACE LOCK=NONE",
+                policy.rewrite("CREATE UNIQUE INDEX idx_a ON t1 (a)"));
+        Assert.assertEquals("CREATE TABLE t2 (id INT)", policy.rewrite("CREATE TABLE t2 (id INT)"));
+        Assert.assertEquals("ALTER TABLE t1 ADD COLUMN c INT",
+                new DdlPolicy(5, 60, false).rewrite("ALTER TABLE t1 ADD COLUMN c INT"));
+
+        // 字段或索引名为lock、partition时仍然改写
+        Assert.assertEquals("ALTER TABLE t1 ADD COLUMN `lock` INT, ALGORITHM=INPLACE, LOCK=NONE",
+                policy.rewrite("ALTER TABLE t1 ADD COLUMN `lock` INT"));
+        Assert.assertEquals("ALTER TABLE t1 ADD INDEX lock_idx (lock_name), ALGORITHM=INPLACE, LOCK=NONE",
+                policy.rewrite("ALTER TABLE t1 ADD INDEX lock_idx (lock_name)"));
+        Assert.assertEquals("CREATE INDEX idx_partition ON t1 (`partition`) ALGORITHM=INPLACE LOCK=NONE",
+                policy.rewrite("CREATE INDEX idx_partition ON t1 (`partition`)"));
+    }
+
+    @Test
+    public void test_explicit_options_kept() {
+        DdlPolicy policy = new DdlPolicy(0, 0, true);
+        Assert.assertEquals("ALTER TABLE t1 MODIFY c BIGINT, ALGORITHM=COPY",
+                policy.rewrite("ALTER TABLE t1 MODIFY c BIGINT, ALGORITHM=COPY"));
+        Assert.assertEquals("ALTER TABLE t1 ADD COLUMN c INT, LOCK = SHARED",
+                policy.rewrite("ALTER TABLE t1 ADD COLUMN c INT, LOCK = SHARED"));
+        Assert.assertEquals("ALTER TABLE t1 ADD PARTITION (PARTITION p3 VALUES LESS THAN (30))",
+                policy.rewrite("ALTER TABLE t1 ADD PARTITION (PARTITION p3 VALUES LESS THAN (30))"));
+        Assert.assertEquals("ALTER TABLE t1 PARTITION BY HASH(id) PARTITIONS 4",
+                policy.rewrite("ALTER TABLE t1 PARTITION BY HASH(id) PARTITIONS 4"));
+        Assert.assertEquals("ALTER TABLE t1 REMOVE PARTITIONING",
+                policy.rewrite("ALTER TABLE t1 REMOVE PARTITIONING"));
+    }
+
+    @Test
+    public void test_lock_wait_timeout() {
+        Assert.assertTrue(DdlPolicy.isLockWaitTimeout(new SQLException("Lock wait timeout exceeded", "HY000", DdlPolicy.ER_LOCK_WAIT_TIMEOUT)));
+        Assert.assertTrue(DdlPolicy.isLockWaitTimeout(new SQLException("wrapped",
+                new SQLException("Lock wait timeout exceeded", "HY000", DdlPolicy.ER_LOCK_WAIT_TIMEOUT))));
+        Assert.assertFalse(DdlPolicy.isLockWaitTimeout(new SQLException("Duplicate entry", "23000", 1062)));
+    }
+}
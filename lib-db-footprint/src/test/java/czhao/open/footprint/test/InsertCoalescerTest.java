@@ -0,0 +1,61 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.InsertCoalescer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单行INSERT语句合并测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class InsertCoalescerTest {
+
+    @Test
+    public void test_coalesce_consecutive_inserts() {
+        List<String> sqls = coalesce(1024 * 1024,
+                "CREATE TABLE t (id INT, name VARCHAR(20))",
+                "INSERT INTO t (id, name) VALUES (1, 'a')",
+                "INSERT INTO t (id,  name)\nVALUES (2, 'b,(c)')",
+                "INSERT INTO t (id, name) VALUES (3, 'it''s ); x')",
+                "INSERT INTO t (id) VALUES (4)",
+                "INSERT INTO t (id) VALUES (5)",
+                "UPDATE t SET name = 'z' WHERE id = 1",
+                "INSERT INTO t (id, name) VALUES (6, CONCAT('x', 'y'))",
+                "INSERT INTO t (id, name) VALUES (7, 'x') ON DUPLICATE KEY UPDATE name = 'y'",
+                "INSERT INTO t (id, name) SELECT 8, 'x'");
+        Assert.assertEquals(List.of(
+                "CREATE TABLE t (id INT, name VARCHAR(20))",
+                "INSERT INTO t (id, name) VALUES (1, 'a'), (2, 'b,(c)'), (3, 'it''s ); x')",
+                "INSERT INTO t (id) VALUES (4), (5)",
+                "UPDATE t SET name = 'z' WHERE id = 1",
+                "INSERT INTO t (id, name) VALUES (6, CONCAT('x', 'y'))",
+                "INSERT INTO t (id, name) VALUES (7, 'x') ON DUPLICATE KEY UPDATE name = 'y'",
+                "INSERT INTO t (id, name) SELECT 8, 'x'"), sqls);
+    }
+
+    @Test
+    public void test_max_bytes() {
+        List<String> sqls = coalesce(50,
+                "INSERT INTO t VALUES (1, 'aaaa')",
+                "INSERT INTO t VALUES (2, 'bbbb')",
+                "INSERT INTO t VALUES (3, 'cccc')");
+        Assert.assertEquals(List.of(
+                "INSERT INTO t VALUES (1, 'aaaa'), (2, 'bbbb')",
+                "INSERT INTO t VALUES (3, 'cccc')"), sqls);
+    }
+
+    private List<String> coalesce(int maxBytes, String... sqls) {
+        InsertCoalescer coalescer = new InsertCoalescer(List.of(sqls).iterator(), maxBytes);
+        List<String> result = new ArrayList<>();
+        coalescer.forEachRemaining(result::add);
+        Assert.assertEquals(sqls.length, coalescer.getInputCount());
+        Assert.assertEquals(result.size(), coalescer.getOutputCount());
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.ScriptSource;
+import czhao.open.footprint.versionctl.SQLScriptCatalog;
+import czhao.open.footprint.versionctl.entity.DbVersionEntity;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * SQL脚本目录测试用例
+ *
+ * <p>增量脚本的选取结果应与逐个调用{@link SQLScriptEntity#checkNeed}过滤后排序的结果一致。</p>
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class SQLScriptCatalogTest {
+
+    @Test
+    public void test_pending_same_as_filter_and_sort() {
+        List<SQLScriptEntity> scripts = new ArrayList<>();
+        // 业务空间packed: 版本号都可以压缩，使用版本键二分查找
+        for (String version : List.of("2.0.0", "1.0.0", "1.0.0.1", "1.2.3", "1.10.0", "0.0.0", "65535.0.0.65535", "3.0.0.7")) {
+            scripts.add(script("packed", version));
+        }
+        // 业务空间unpacked: 有超过MAX_PACKABLE_VERSION的版本号，使用checkNeed二分查找
+        for (String version : List.of("1.0.0", "70000.0.0", "1.65536.0", "2.0.0.1", "1.0.0.100000", "0.1.0")) {
+            scripts.add(script("unpacked", version));
+        }
+        Collections.shuffle(scripts, new Random(42));
+        SQLScriptCatalog catalog = SQLScriptCatalog.of(scripts);
+        Assert.assertEquals(scripts.size(), catalog.size());
+        Assert.assertEquals(Set.of("packed", "unpacked"), catalog.getBusinessSpaces());
+
+        List<int[]> latestVersions = List.of(
+                new int[]{0, 0, 0, 0}, new int[]{1, 0, 0, 0}, new int[]{1, 0, 0, 1}, new int[]{1, 2, 3, 0},
+                new int[]{1, 5, 0, 0}, new int[]{2, 0, 0, 0}, new int[]{65535, 0, 0, 65535}, new int[]{99, 0, 0, 0},
+                new int[]{1, 65536, 0, 0}, new int[]{1, 0, 0, 100000}, new int[]{70000, 0, 0, 0}, new int[]{100000, 0, 0, 0});
+        for (String bs : List.of("packed", "unpacked", "unknown")) {
+            Assert.assertEquals(bs, expectedPending(scripts, bs, null), catalog.pending(bs, null));
+            for (int[] v : latestVersions) {
+                DbVersionEntity latest = latestVersion(bs, v);
+                Assert.assertEquals(bs + " " + Arrays.toString(v), expectedPending(scripts, bs, latest), catalog.pending(bs, latest));
+            }
+        }
+        Assert.assertTrue(catalog.pending("unknown", null).isEmpty());
+        Assert.assertTrue(SQLScriptCatalog.of(List.of()).pending("packed", null).isEmpty());
+    }
+
+    /**
+     * 原有的增量脚本选取方式: 没有版本记录时视为0.0.0.0，逐个调用checkNeed过滤后排序
+     */
+    private List<SQLScriptEntity> expectedPending(List<SQLScriptEntity> scripts, String bs, DbVersionEntity latest) {
+        int major = latest == null ? 0 : latest.getMajorVersion();
+        int minor = latest == null ? 0 : latest.getMinorVersion();
+        int patch = latest == null ? 0 : latest.getPatchVersion();
+        int extend = latest == null ? 0 : latest.getExtendVersion();
+        return scripts.stream()
+                .filter(s -> s.getBusinessSpace().equals(bs))
+                .filter(s -> s.checkNeed(major, minor, patch, extend))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private SQLScriptEntity script(String bs, String version) {
+        return new SQLScriptEntity(ScriptSource.of(Path.of(bs + "_V" + version + "_test.sql")));
+    }
+
+    private DbVersionEntity latestVersion(String bs, int[] v) {
+        DbVersionEntity dbVersionEntity = new DbVersionEntity();
+        dbVersionEntity.setBusinessSpace(bs);
+        dbVersionEntity.setMajorVersion(v[0]);
+        dbVersionEntity.setMinorVersion(v[1]);
+        dbVersionEntity.setPatchVersion(v[2]);
+        dbVersionEntity.setExtendVersion(v[3]);
+        return dbVersionEntity;
+    }
+}
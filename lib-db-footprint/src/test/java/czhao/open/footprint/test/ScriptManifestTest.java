@@ -0,0 +1,54 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.DigestUtil;
+import czhao.open.footprint.utils.ScriptManifest;
+import czhao.open.footprint.versionctl.ScriptManifestGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * SQL脚本清单测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class ScriptManifestTest {
+
+    @Test
+    public void test_generate_and_read() throws IOException {
+        Path dir = Files.createTempDirectory("footprint_manifest");
+        try {
+            Files.write(dir.resolve("raven_V1.0.0_init.sql"), "CREATE TABLE t1 (id INT);\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve("raven_V1.0.1.2_add.sql"), "INSERT INTO t1 VALUES (1);\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve("readme.txt"), "not a script".getBytes(StandardCharsets.UTF_8));
+
+            Path manifestPath = ScriptManifestGenerator.generate(dir);
+            ScriptManifest manifest;
+            try (InputStream inputStream = Files.newInputStream(manifestPath)) {
+                manifest = ScriptManifest.read(inputStream);
+            }
+            List<ScriptManifest.Entry> entries = manifest.getEntries();
+            Assert.assertEquals(2, entries.size());
+            ScriptManifest.Entry entry = entries.get(0);
+            Assert.assertEquals("raven", entry.getBusinessSpace());
+            Assert.assertEquals("raven_V1.0.0.0", entry.getVersion());
+            Assert.assertEquals("raven_V1.0.0_init.sql", entry.getFileName());
+            Assert.assertEquals(Files.size(dir.resolve("raven_V1.0.0_init.sql")), entry.getSize());
+            Assert.assertEquals(DigestUtil.digestHex(dir.resolve("raven_V1.0.0_init.sql")), entry.getDigestHex());
+            Assert.assertEquals("raven_V1.0.1.2", entries.get(1).getVersion());
+        } finally {
+            try (var files = Files.list(dir)) {
+                files.forEach(p -> p.toFile().delete());
+            }
+            Files.delete(dir);
+        }
+    }
+}
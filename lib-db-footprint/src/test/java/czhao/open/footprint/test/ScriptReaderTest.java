@@ -0,0 +1,159 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.DigestUtil;
+import czhao.open.footprint.utils.ScriptCodec;
+import czhao.open.footprint.utils.ScriptReader;
+import czhao.open.footprint.utils.ScriptSource;
+import czhao.open.footprint.versionctl.entity.SQLScriptEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SQL脚本阅读器测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class ScriptReaderTest {
+
+    private static List<String> read(String script) {
+        return new ScriptReader(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8))).readSqls();
+    }
+
+    @Test
+    public void test_split_by_semicolon() {
+        List<String> sqls = read("-- 注释行\n"
+                + "DROP TABLE IF EXISTS `t1`;\n"
+                + "\n"
+                + "CREATE TABLE `t1` (\n"
+                + "  `id` INT NOT NULL -- 行尾注释\n"
+                + ");\n"
+                + "INSERT INTO `t1` VALUES (1); INSERT INTO `t1` VALUES (2)\n");
+        Assert.assertEquals(List.of(
+                "DROP TABLE IF EXISTS `t1`",
+                "CREATE TABLE `t1` (\n  `id` INT NOT NULL \n)",
+                "INSERT INTO `t1` VALUES (1)",
+                "INSERT INTO `t1` VALUES (2)"), sqls);
+    }
+
+    @Test
+    public void test_semicolon_in_quotes_and_comments() {
+        List<String> sqls = read("INSERT INTO t VALUES ('a;b', \"c;d\", 'it''s;', 'x\\';y');\n"
+                + "/* 块注释; 不结束语句 */ SELECT `a;b` FROM t;\n"
+                + "/* 只有注释的语句会被丢弃 */;\n"
+                + "/*!40101 SET NAMES utf8mb4 */;\n"
+                + "SELECT 1--1;\n");
+        Assert.assertEquals(List.of(
+                "INSERT INTO t VALUES ('a;b', \"c;d\", 'it''s;', 'x\\';y')",
+                "/* 块注释; 不结束语句 */ SELECT `a;b` FROM t",
+                "/*!40101 SET NAMES utf8mb4 */",
+                "SELECT 1--1"), sqls);
+    }
+
+    @Test
+    public void test_delimiter_command() {
+        List<String> sqls = read("DELIMITER $$\n"
+                + "CREATE PROCEDURE p1()\n"
+                + "BEGIN\n"
+                + "  SELECT 1;\n"
+                + "  SELECT 2;\n"
+                + "END$$\n"
+                + "DELIMITER ;\n"
+                + "CALL p1();\n");
+        Assert.assertEquals(List.of(
+                "CREATE PROCEDURE p1()\nBEGIN\n  SELECT 1;\n  SELECT 2;\nEND",
+                "CALL p1()"), sqls);
+    }
+
+    @Test
+    public void test_bom_and_blank_script() {
+        Assert.assertEquals(List.of("SELECT 1"), read("\uFEFFSELECT 1;\r\n"));
+        Assert.assertTrue(read("\n-- only comment\n\n").isEmpty());
+    }
+
+    @Test
+    public void test_mapped_file_same_as_stream() throws IOException {
+        StringBuilder sb = new StringBuilder("\uFEFFDELIMITER //\nCREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW BEGIN SET @a = '中文;'; END//\nDELIMITER ;\n");
+        for (int i = 0; sb.length() < ScriptReader.MMAP_THRESHOLD * 2; i++) {
+            sb.append("INSERT INTO t VALUES (").append(i).append(", '中文;内容', /* 注释; */ 'x');\n-- 注释\n");
+        }
+        Path scriptFile = Files.createTempFile("footprint_V1.0.0_mapped", ".sql");
+        try {
+            Files.writeString(scriptFile, sb.toString(), StandardCharsets.UTF_8);
+            List<String> mapped = new ScriptReader(scriptFile).readSqls();
+            Assert.assertEquals(read(sb.toString()), mapped);
+            Assert.assertEquals("CREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW BEGIN SET @a = '中文;'; END", mapped.get(0));
+        } finally {
+            Files.delete(scriptFile);
+        }
+    }
+
+    @Test
+    public void test_digest_while_streaming() throws IOException {
+        StringBuilder sb = new StringBuilder("\uFEFF");
+        for (int i = 0; sb.length() < ScriptReader.MMAP_THRESHOLD * 2; i++) {
+            sb.append("INSERT INTO t VALUES (").append(i).append(", '中文');\n");
+        }
+        Path scriptFile = Files.createTempFile("footprint_V1.0.0_digest", ".sql");
+        try {
+            Files.writeString(scriptFile, sb.toString(), StandardCharsets.UTF_8);
+            String expected = DigestUtil.digestHex(scriptFile);
+
+            ScriptReader mapped = new ScriptReader(scriptFile);
+            mapped.enableDigest();
+            Assert.assertNull(mapped.getDigestHex());
+            mapped.readSqls();
+            Assert.assertEquals(expected, mapped.getDigestHex());
+            Assert.assertEquals(Files.size(scriptFile), mapped.getBytesRead());
+
+            ScriptReader stream = new ScriptReader(Files.newInputStream(scriptFile));
+            stream.enableDigest();
+            stream.readSqls();
+            Assert.assertEquals(expected, stream.getDigestHex());
+            Assert.assertEquals(Files.size(scriptFile), stream.getBytesRead());
+        } finally {
+            Files.delete(scriptFile);
+        }
+    }
+
+    @Test
+    public void test_gzip_script() throws IOException {
+        StringBuilder sb = new StringBuilder("\uFEFF");
+        for (int i = 0; sb.length() < ScriptReader.MMAP_THRESHOLD * 2; i++) {
+            sb.append("INSERT INTO t VALUES (").append(i).append(", '中文;');\n");
+        }
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Path dir = Files.createTempDirectory("footprint_gzip");
+        Path scriptFile = dir.resolve("footprint_V1.2.0_gzip.sql.gz");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(scriptFile))) {
+                out.write(content);
+            }
+            ScriptSource scriptSource = ScriptSource.of(scriptFile);
+            Assert.assertEquals(ScriptCodec.GZIP, scriptSource.getCodec());
+            SQLScriptEntity entity = new SQLScriptEntity(scriptSource);
+            Assert.assertEquals("footprint_V1.2.0_gzip.sql", entity.getFileName());
+            Assert.assertEquals("footprint_V1.2.0.0", entity.getVersion());
+            Assert.assertTrue(SQLScriptEntity.isScriptFileName(scriptFile.getFileName().toString()));
+
+            ScriptReader reader = entity.createScriptReader();
+            reader.enableDigest();
+            Assert.assertEquals(read(sb.toString()), reader.readSqls());
+            Assert.assertEquals(DigestUtil.digestHex(new ByteArrayInputStream(content)), reader.getDigestHex());
+            Assert.assertEquals(content.length, reader.getBytesRead());
+        } finally {
+            Files.deleteIfExists(scriptFile);
+            Files.delete(dir);
+        }
+    }
+}
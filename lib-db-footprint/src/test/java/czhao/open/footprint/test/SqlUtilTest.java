@@ -0,0 +1,54 @@
+package czhao.open.footprint.test;
+
+import czhao.open.footprint.utils.SqlUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+/**
+ * SQL语句文本工具类测试用例
+ *
+ * <p>该测试用例不需要数据库。</p>
+ *
+ * @author zhaochun
+ */
+public class SqlUtilTest {
+
+    @Test
+    public void test_touched_tables() {
+        Assert.assertEquals(Set.of("t_order", "t_user"), SqlUtil.touchedTables(
+                "CREATE TABLE IF NOT EXISTS `db`.`T_Order` (\n"
+                        + "  id INT, user_id INT COMMENT 'references x', -- REFERENCES y\n"
+                        + "  FOREIGN KEY (user_id) REFERENCES t_user (id)\n"
+                        + ")"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("CREATE UNIQUE INDEX idx_a ON t1 (a)"));
+        Assert.assertEquals(Set.of("t1", "t2"), SqlUtil.touchedTables("ALTER TABLE t1 RENAME INDEX a TO b, RENAME TO t2"));
+        Assert.assertEquals(Set.of("t1", "t2"), SqlUtil.touchedTables("DROP TABLE IF EXISTS t1, `t2`"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("TRUNCATE TABLE t1"));
+        Assert.assertEquals(Set.of("a", "b", "c", "d"), SqlUtil.touchedTables("RENAME TABLE a TO b, c TO d"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("INSERT IGNORE INTO t1 (a, b) VALUES (1, 'select'), (2, \"x\")"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("REPLACE t1 VALUES (1)"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("UPDATE t1 a SET a.b = 1 WHERE a.id = 2"));
+        Assert.assertEquals(Set.of("t1"), SqlUtil.touchedTables("DELETE FROM t1 WHERE id = 1"));
+
+        Assert.assertNull(SqlUtil.touchedTables("INSERT INTO t1 SELECT * FROM t2"));
+        Assert.assertNull(SqlUtil.touchedTables("UPDATE t1, t2 SET t1.a = t2.a WHERE t1.id = t2.id"));
+        Assert.assertNull(SqlUtil.touchedTables("UPDATE t1 JOIN t2 ON t1.id = t2.id SET t1.a = 1"));
+        Assert.assertNull(SqlUtil.touchedTables("DELETE t1 FROM t1 JOIN t2 ON t1.id = t2.id"));
+        Assert.assertNull(SqlUtil.touchedTables("DELETE FROM t1 WHERE id IN (SELECT id FROM t2)"));
+        Assert.assertNull(SqlUtil.touchedTables("CREATE TABLE t1 AS SELECT * FROM t2"));
+        Assert.assertNull(SqlUtil.touchedTables("CREATE VIEW v1 AS SELECT * FROM t1"));
+        Assert.assertNull(SqlUtil.touchedTables("SET NAMES utf8mb4"));
+    }
+
+    @Test
+    public void test_session_statement() {
+        Assert.assertTrue(SqlUtil.isSessionStatement("SET FOREIGN_KEY_CHECKS = 0"));
+        Assert.assertTrue(SqlUtil.isSessionStatement("/*!40101 SET NAMES utf8mb4 */"));
+        Assert.assertTrue(SqlUtil.isSessionStatement("USE db1"));
+        Assert.assertTrue(SqlUtil.isSessionStatement("CREATE TEMPORARY TABLE tmp (id INT)"));
+        Assert.assertFalse(SqlUtil.isSessionStatement("CREATE TABLE t1 (id INT)"));
+        Assert.assertFalse(SqlUtil.isSessionStatement("INSERT INTO t1 VALUES (1)"));
+    }
+}